@@ -0,0 +1,26 @@
+-- Enforces one cart_items row per (cart, product) so add-to-cart can upsert.
+-- Run once before deploying; ddl-auto=update cannot add the constraint while duplicates exist.
+
+BEGIN;
+
+-- Merge duplicate rows into the oldest one, keeping the summed quantity
+UPDATE cart_items ci
+SET quantity = d.total_quantity
+FROM (
+    SELECT MIN(cart_item_id) AS keep_id, SUM(quantity) AS total_quantity
+    FROM cart_items
+    GROUP BY cart_id, product_id
+    HAVING COUNT(*) > 1
+) d
+WHERE ci.cart_item_id = d.keep_id;
+
+DELETE FROM cart_items ci
+USING cart_items keep
+WHERE ci.cart_id = keep.cart_id
+  AND ci.product_id = keep.product_id
+  AND ci.cart_item_id > keep.cart_item_id;
+
+ALTER TABLE cart_items
+    ADD CONSTRAINT uk_cart_items_cart_product UNIQUE (cart_id, product_id);
+
+COMMIT;
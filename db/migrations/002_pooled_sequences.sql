@@ -0,0 +1,15 @@
+-- Entities now reserve ids in blocks of 50 (allocationSize = 50, pooled optimizer).
+-- Hibernate refuses to start if a sequence's increment differs from the mapping,
+-- so run this against existing databases before deploying. New databases get the
+-- right increment from ddl-auto. Ids handed out afterwards continue above the
+-- current sequence values, so existing rows are never reused.
+
+ALTER SEQUENCE address_id_seq INCREMENT BY 50;
+ALTER SEQUENCE cart_id_seq INCREMENT BY 50;
+ALTER SEQUENCE cart_item_id_seq INCREMENT BY 50;
+ALTER SEQUENCE category_id_seq INCREMENT BY 50;
+ALTER SEQUENCE order_id_seq INCREMENT BY 50;
+ALTER SEQUENCE order_item_id_seq INCREMENT BY 50;
+ALTER SEQUENCE payment_id_seq INCREMENT BY 50;
+ALTER SEQUENCE product_id_seq INCREMENT BY 50;
+ALTER SEQUENCE user_id_seq INCREMENT BY 50;
@@ -0,0 +1,5 @@
+-- Composite index for keyset pagination of a user's order history (newest first).
+-- Built concurrently so placing orders is not blocked; run outside a transaction.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_orders_email_date_id
+    ON orders (email, order_date DESC, order_id DESC);
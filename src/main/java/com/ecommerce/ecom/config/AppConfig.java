@@ -3,8 +3,14 @@ package com.ecommerce.ecom.config;
 import org.modelmapper.ModelMapper;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @Configuration
+@EnableScheduling
+// Retry advice must wrap the transaction so every attempt runs in a fresh one
+@EnableRetry(order = Ordered.LOWEST_PRECEDENCE - 1)
 public class AppConfig {
 
     @Bean
@@ -6,5 +6,14 @@ public class AppConstants {
     public static final String SORT_CATEGORIES_BY = "categoryId";
     public static final String SORT_DIR =  "asc";
     public static final String SORT_PRODUCTS_BY = "productId";
+    public static final String ORDER_HISTORY_PAGE_SIZE = "20";
+    public static final int ORDER_HISTORY_MAX_PAGE_SIZE = 100;
+    public static final int CART_BATCH_MAX_OPERATIONS = 100;
+    public static final int IDEMPOTENCY_KEY_MAX_LENGTH = 100;
+
+    public static final String ORDER_STATUS_PENDING = "Pending";
+    public static final String ORDER_STATUS_PLACED = "Order Placed.";
+    public static final String ORDER_STATUS_FAILED = "Failed";
+    public static final String ORDER_STATUS_CANCELED = "Canceled";
 
 }
@@ -5,15 +5,24 @@ import com.ecommerce.ecom.model.Role;
 import com.ecommerce.ecom.model.User;
 import com.ecommerce.ecom.repositories.RoleRepository;
 import com.ecommerce.ecom.repositories.UserRepository;
+import com.ecommerce.ecom.security.jwt.JwtTokenVerifier;
 import com.ecommerce.ecom.security.jwt.JwtUtils;
 import com.ecommerce.ecom.security.request.LoginRequest;
 import com.ecommerce.ecom.security.request.SignupRequest;
 import com.ecommerce.ecom.security.response.MessageResponse;
 import com.ecommerce.ecom.security.response.UserInfoResponse;
+import com.ecommerce.ecom.security.services.LoginThrottleService;
+import com.ecommerce.ecom.security.services.TokenRevocationService;
 import com.ecommerce.ecom.security.services.UserDetailsImpl;
+import com.ecommerce.ecom.security.services.UserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.*;
@@ -51,9 +60,31 @@ public class AuthController {
     @Autowired
     PasswordEncoder encoder;
 
+    @Autowired
+    UserDetailsServiceImpl userDetailsService;
+
+    @Autowired
+    LoginThrottleService loginThrottleService;
+
+    @Autowired
+    JwtTokenVerifier jwtTokenVerifier;
+
+    @Autowired
+    TokenRevocationService tokenRevocationService;
+
 
     @PostMapping("/signin")
-    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
+    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest,
+                                              HttpServletRequest request) {
+        // Reject over-limit attempts before spending a BCrypt verification on them
+        // Behind the load balancer the remote address is resolved from X-Forwarded-For (server.forward-headers-strategy)
+        if (!loginThrottleService.tryAcquire(loginRequest.getUsername(), request.getRemoteAddr())) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(
+                            loginThrottleService.retryAfterSeconds(loginRequest.getUsername(), request.getRemoteAddr())))
+                    .body(new MessageResponse("Too many login attempts. Please try again later."));
+        }
+
         try {
             // Authenticate the user
             Authentication authentication = authenticationManager
@@ -105,15 +136,7 @@ public class AuthController {
 
     @PostMapping("/signup")
     public ResponseEntity<?> registerUser(@Valid @RequestBody SignupRequest signUpRequest) {
-        if (userRepository.existsByUsername(signUpRequest.getUsername())) {
-            return ResponseEntity.badRequest().body(new MessageResponse("Error: Username is already taken!"));
-        }
-
-        if (userRepository.existsByEmail(signUpRequest.getEmail())) {
-            return ResponseEntity.badRequest().body(new MessageResponse("Error: Email is already in use!"));
-        }
-
-        // Create new user's account
+        // Create new user's account; duplicates are rejected by the unique constraints on users
         User user = new User(signUpRequest.getUsername(),
                 signUpRequest.getEmail(),
                 encoder.encode(signUpRequest.getPassword()));
@@ -149,11 +172,48 @@ public class AuthController {
         }
 
         user.setRoles(roles);
-        userRepository.save(user);
+        try {
+            userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            String constraint = violatedConstraint(e);
+            if (User.UK_USERNAME.equals(constraint)) {
+                return ResponseEntity.badRequest().body(new MessageResponse("Error: Username is already taken!"));
+            }
+            if (User.UK_EMAIL.equals(constraint)) {
+                return ResponseEntity.badRequest().body(new MessageResponse("Error: Email is already in use!"));
+            }
+            // Databases created before the constraints were named still report generated names
+            if (userRepository.existsByUsername(user.getUsername())) {
+                return ResponseEntity.badRequest().body(new MessageResponse("Error: Username is already taken!"));
+            }
+            if (userRepository.existsByEmail(user.getEmail())) {
+                return ResponseEntity.badRequest().body(new MessageResponse("Error: Email is already in use!"));
+            }
+            throw e;
+        }
+        userDetailsService.evict(user.getUsername());
 
         return ResponseEntity.ok(new MessageResponse("User registered successfully!"));
     }
 
+    /**
+     * Finds the name of the unique constraint behind a failed insert, normalized to lower case
+     * without the schema prefix or index suffix some databases add (e.g. H2's "PUBLIC.UK_X_INDEX_4").
+     *
+     * @return The constraint name, or null if the failure was not a constraint violation
+     */
+    private static String violatedConstraint(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                String name = violation.getConstraintName().toLowerCase(Locale.ROOT);
+                name = name.substring(name.lastIndexOf('.') + 1);
+                int indexSuffix = name.indexOf("_index_");
+                return indexSuffix < 0 ? name : name.substring(0, indexSuffix);
+            }
+        }
+        return null;
+    }
+
     @GetMapping("/username")
     public String currentUserName(Authentication authentication) {
         if (authentication != null) {
@@ -181,7 +241,17 @@ public class AuthController {
     }
 
     @PostMapping("/signout")
-    public ResponseEntity<?> signoutUser(){
+    public ResponseEntity<?> signoutUser(HttpServletRequest request){
+        // Revoke the presented token so it cannot be used again before it expires
+        String jwt = jwtUtils.getJwtFromAuthorizationHeader(request);
+        if (jwt != null) {
+            Claims claims = jwtTokenVerifier.verify(jwt);
+            if (claims != null) {
+                tokenRevocationService.revoke(claims.getId(), claims.getExpiration());
+            }
+            jwtTokenVerifier.invalidate(jwt);
+        }
+
         // Clear the security context
         SecurityContextHolder.clearContext();
         return ResponseEntity.ok()
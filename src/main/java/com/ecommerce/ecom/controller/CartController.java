@@ -1,11 +1,15 @@
 package com.ecommerce.ecom.controller;
 
+import com.ecommerce.ecom.exceptions.ResourceNotFoundException;
 import com.ecommerce.ecom.model.Cart;
 import com.ecommerce.ecom.payload.APIResponse;
+import com.ecommerce.ecom.payload.CartBatchRequestDTO;
 import com.ecommerce.ecom.payload.CartDTO;
 import com.ecommerce.ecom.repositories.CartRepository;
+import com.ecommerce.ecom.service.CartMutationCoalescer;
 import com.ecommerce.ecom.service.CartService;
 import com.ecommerce.ecom.util.AuthUtil;
+import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,6 +28,9 @@ public class CartController {
     @Autowired
     private CartService cartService;
 
+    @Autowired
+    private CartMutationCoalescer cartMutationCoalescer;
+
     @Autowired
     private CartRepository cartRepository;
 
@@ -36,6 +43,13 @@ public class CartController {
         return new ResponseEntity<>(cartDTO, HttpStatus.CREATED);
     }
 
+    // Applies add, set and remove operations in one transaction, e.g. to restore a saved cart or reorder
+    @PostMapping("/carts/batch")
+    public ResponseEntity<CartDTO> applyCartOperations(@Valid @RequestBody CartBatchRequestDTO request) {
+        CartDTO cartDTO = cartService.applyCartOperations(request.getOperations());
+        return new ResponseEntity<>(cartDTO, HttpStatus.OK);
+    }
+
     @GetMapping("/carts")
     public ResponseEntity<List<CartDTO>> getCart() {
         List<CartDTO> cartDTOs = cartService.getAllCarts();
@@ -60,7 +74,19 @@ public class CartController {
     @PutMapping("/carts/products/{productId}/quantity/{operation}")
     public ResponseEntity<CartDTO> updateCartProduct(@PathVariable Long productId,
                                                      @PathVariable String operation) {
-        CartDTO cartDTO = cartService.updateProductQuantityInCart(productId, operation);
+        CartDTO cartDTO;
+        if ("increase".equalsIgnoreCase(operation) || "decrease".equalsIgnoreCase(operation)) {
+            // Rapid +/- clicks on the same line are merged into one transaction
+            String emailId = authUtil.loggedInEmail();
+            Cart cart = cartRepository.findCartByEmail(emailId);
+            if (cart == null) {
+                throw new ResourceNotFoundException("Cart", "email", emailId);
+            }
+            int delta = "increase".equalsIgnoreCase(operation) ? 1 : -1;
+            cartDTO = cartMutationCoalescer.changeQuantity(cart.getCartId(), productId, delta);
+        } else {
+            cartDTO = cartService.updateProductQuantityInCart(productId, operation);
+        }
 
         // Check if the cart is empty after updating and delete if needed
         if (cartDTO.getProducts() != null && cartDTO.getProducts().isEmpty()) {
@@ -110,4 +136,11 @@ public class CartController {
             );
         }
     }
-}
\ No newline at end of file
+
+    @PostMapping("/admin/carts/reconcile")
+    public ResponseEntity<APIResponse> reconcileCartTotals() {
+        int corrected = cartService.reconcileCartTotals();
+        return new ResponseEntity<>(new APIResponse("Corrected totals on " + corrected + " carts", true),
+                HttpStatus.OK);
+    }
+}
@@ -1,7 +1,11 @@
 package com.ecommerce.ecom.controller;
 
+import com.ecommerce.ecom.config.AppConstants;
+import com.ecommerce.ecom.exceptions.APIException;
 import com.ecommerce.ecom.payload.OrderDTO;
 import com.ecommerce.ecom.payload.OrderRequestDTO;
+import com.ecommerce.ecom.service.OrderIdempotencyGuard;
+import com.ecommerce.ecom.service.OrderIntakeQueue;
 import com.ecommerce.ecom.service.OrderService;
 import com.ecommerce.ecom.util.AuthUtil;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,18 +13,32 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.regex.Pattern;
+
 @RestController
 @RequestMapping("/api")
 public class OrderController {
 
+    // Fits the idempotency_key column and keeps keys safe to log
+    private static final Pattern IDEMPOTENCY_KEY = Pattern.compile(
+            "[A-Za-z0-9._:-]{1," + AppConstants.IDEMPOTENCY_KEY_MAX_LENGTH + "}");
+
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private OrderIdempotencyGuard orderIdempotencyGuard;
+
     @Autowired
     private AuthUtil authUtil;
 
+    @Autowired
+    private OrderIntakeQueue orderIntakeQueue;
+
     @PostMapping("/order/users/payments/{paymentMethod}")
-    public ResponseEntity<OrderDTO> orderProducts(@PathVariable String paymentMethod, @RequestBody OrderRequestDTO orderRequestDTO) {
+    public ResponseEntity<OrderDTO> orderProducts(@PathVariable String paymentMethod,
+                                                  @RequestBody OrderRequestDTO orderRequestDTO,
+                                                  @RequestParam(name = "async", defaultValue = "false") boolean async) {
         String email;
         try {
             email = authUtil.loggedInEmail();
@@ -29,15 +47,44 @@ public class OrderController {
             System.err.println("Authentication error: " + e.getMessage());
             return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
         }
-        OrderDTO orderDTO = orderService.placeOrder(
+        // A retried request with the same key gets the original order back instead of a duplicate
+        String idempotencyKey = orderRequestDTO.getIdempotencyKey() != null
+                ? orderRequestDTO.getIdempotencyKey()
+                : orderRequestDTO.getPgPaymentId();
+        if (idempotencyKey != null && !idempotencyKey.isBlank() && !IDEMPOTENCY_KEY.matcher(idempotencyKey).matches()) {
+            throw new APIException("Idempotency key must be at most " + AppConstants.IDEMPOTENCY_KEY_MAX_LENGTH
+                    + " letters, digits or '.', '_', ':', '-' characters");
+        }
+
+        if (async) {
+            // Persist a pending order and let the intake workers complete it; clients poll its status
+            OrderDTO pendingOrder = orderIdempotencyGuard.placeOnce(email, idempotencyKey, () -> {
+                OrderDTO created = orderService.createPendingOrder(
+                        email,
+                        orderRequestDTO.getAddressId(),
+                        paymentMethod,
+                        orderRequestDTO.getPgName(),
+                        orderRequestDTO.getPgPaymentId(),
+                        orderRequestDTO.getPgStatus(),
+                        orderRequestDTO.getPgResponseMessage(),
+                        idempotencyKey
+                );
+                orderIntakeQueue.submit(created.getOrderId());
+                return created;
+            });
+            return new ResponseEntity<>(pendingOrder, HttpStatus.ACCEPTED);
+        }
+
+        OrderDTO orderDTO = orderIdempotencyGuard.placeOnce(email, idempotencyKey, () -> orderService.placeOrder(
                 email,
                 orderRequestDTO.getAddressId(),
                 paymentMethod,
                 orderRequestDTO.getPgName(),
                 orderRequestDTO.getPgPaymentId(),
                 orderRequestDTO.getPgStatus(),
-                orderRequestDTO.getPgResponseMessage()
-        );
+                orderRequestDTO.getPgResponseMessage(),
+                idempotencyKey
+        ));
 
         return new ResponseEntity<>(orderDTO, HttpStatus.CREATED);
     }
@@ -1,21 +1,37 @@
 // src/main/java/com/ecommerce/ecom/controller/OrderHistoryController.java
 package com.ecommerce.ecom.controller;
 
+import com.ecommerce.ecom.config.AppConstants;
+import com.ecommerce.ecom.exceptions.APIException;
 import com.ecommerce.ecom.exceptions.ResourceNotFoundException;
+import com.ecommerce.ecom.model.Address;
 import com.ecommerce.ecom.model.Order;
 import com.ecommerce.ecom.model.OrderItem;
+import com.ecommerce.ecom.model.Payment;
+import com.ecommerce.ecom.model.Product;
 import com.ecommerce.ecom.payload.APIResponse;
+import com.ecommerce.ecom.payload.AddressDTO;
 import com.ecommerce.ecom.payload.OrderDTO;
+import com.ecommerce.ecom.payload.OrderHistoryResponse;
 import com.ecommerce.ecom.payload.OrderItemDTO;
+import com.ecommerce.ecom.payload.OrderStatusDTO;
+import com.ecommerce.ecom.payload.OrderSummaryDTO;
+import com.ecommerce.ecom.payload.PaymentDTO;
+import com.ecommerce.ecom.payload.ProductDTO;
 import com.ecommerce.ecom.repositories.OrderItemRepository;
 import com.ecommerce.ecom.repositories.OrderRepository;
+import com.ecommerce.ecom.service.OrderService;
 import com.ecommerce.ecom.util.AuthUtil;
+import com.ecommerce.ecom.util.OrderCursor;
 import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
@@ -39,6 +55,9 @@ public class OrderHistoryController {
     @Autowired
     private AuthUtil authUtil;
 
+    @Autowired
+    private OrderService orderService;
+
     // Get all orders for current user
     @GetMapping("/users")
     @PreAuthorize("isAuthenticated()")
@@ -63,6 +82,44 @@ public class OrderHistoryController {
         }
     }
 
+    // Get one page of the current user's order history, newest first; line items are fetched per order via /{orderId}/items
+    @GetMapping("/users/history")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> getUserOrderHistory(
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = AppConstants.ORDER_HISTORY_PAGE_SIZE) Integer size) {
+        try {
+            String email = authUtil.loggedInEmail();
+
+            int pageSize = Math.max(1, Math.min(size, AppConstants.ORDER_HISTORY_MAX_PAGE_SIZE));
+            // Fetch one extra row to learn whether another page follows without a count query
+            Pageable limit = PageRequest.ofSize(pageSize + 1);
+
+            List<OrderSummaryDTO> orders;
+            if (cursor == null || cursor.isBlank()) {
+                orders = orderRepository.findOrderSummaries(email, limit);
+            } else {
+                OrderCursor after = OrderCursor.decode(cursor);
+                orders = orderRepository.findOrderSummariesAfter(email, after.orderDate(), after.orderId(), limit);
+            }
+
+            boolean lastPage = orders.size() <= pageSize;
+            List<OrderSummaryDTO> content = lastPage ? orders : orders.subList(0, pageSize);
+            String nextCursor = null;
+            if (!lastPage) {
+                OrderSummaryDTO last = content.get(content.size() - 1);
+                nextCursor = new OrderCursor(last.getOrderDate(), last.getOrderId()).encode();
+            }
+
+            return new ResponseEntity<>(new OrderHistoryResponse(content, pageSize, nextCursor, lastPage), HttpStatus.OK);
+        } catch (APIException e) {
+            return new ResponseEntity<>(new APIResponse(e.getMessage(), false), HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            logger.error("Error fetching order history: {}", e.getMessage(), e);
+            return new ResponseEntity<>(new APIResponse("Error fetching orders: " + e.getMessage(), false), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     // Get order by ID
     @GetMapping("/{orderId}")
     @PreAuthorize("isAuthenticated()")
@@ -70,7 +127,7 @@ public class OrderHistoryController {
         try {
             String email = authUtil.loggedInEmail();
 
-            Order order = orderRepository.findById(orderId)
+            Order order = orderRepository.findByIdWithDetails(orderId)
                     .orElseThrow(() -> new ResourceNotFoundException("Order", "id", orderId));
 
             // Ensure user can only see their own orders
@@ -78,21 +135,39 @@ public class OrderHistoryController {
                 return new ResponseEntity<>(new APIResponse("You are not authorized to view this order", false), HttpStatus.FORBIDDEN);
             }
 
-            OrderDTO orderDTO = modelMapper.map(order, OrderDTO.class);
+            return new ResponseEntity<>(toOrderDTO(order), HttpStatus.OK);
+        } catch (ResourceNotFoundException e) {
+            return new ResponseEntity<>(new APIResponse(e.getMessage(), false), HttpStatus.NOT_FOUND);
+        } catch (Exception e) {
+            logger.error("Error fetching order details: {}", e.getMessage(), e);
+            return new ResponseEntity<>(new APIResponse("Error fetching order details: " + e.getMessage(), false), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
 
-            // Map order items
-            List<OrderItemDTO> orderItemDTOs = order.getOrderItems().stream()
-                    .map(item -> modelMapper.map(item, OrderItemDTO.class))
-                    .collect(Collectors.toList());
+    // Get order status, polled by clients after an async checkout
+    @GetMapping("/{orderId}/status")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> getOrderStatus(@PathVariable Long orderId) {
+        try {
+            String email = authUtil.loggedInEmail();
 
-            orderDTO.setOrderItemDTOs(orderItemDTOs);
+            Order order = orderRepository.findById(orderId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Order", "id", orderId));
 
-            return new ResponseEntity<>(orderDTO, HttpStatus.OK);
+            // Ensure user can only see their own orders
+            if (!order.getEmail().equals(email)) {
+                return new ResponseEntity<>(new APIResponse("You are not authorized to view this order", false), HttpStatus.FORBIDDEN);
+            }
+
+            OrderStatusDTO statusDTO = new OrderStatusDTO(order.getOrderId(), order.getOrderStatus(), order.getTotalAmount(),
+                    AppConstants.ORDER_STATUS_PENDING.equals(order.getOrderStatus()));
+
+            return new ResponseEntity<>(statusDTO, HttpStatus.OK);
         } catch (ResourceNotFoundException e) {
             return new ResponseEntity<>(new APIResponse(e.getMessage(), false), HttpStatus.NOT_FOUND);
         } catch (Exception e) {
-            logger.error("Error fetching order details: {}", e.getMessage(), e);
-            return new ResponseEntity<>(new APIResponse("Error fetching order details: " + e.getMessage(), false), HttpStatus.INTERNAL_SERVER_ERROR);
+            logger.error("Error fetching order status: {}", e.getMessage(), e);
+            return new ResponseEntity<>(new APIResponse("Error fetching order status: " + e.getMessage(), false), HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
@@ -103,7 +178,7 @@ public class OrderHistoryController {
         try {
             String email = authUtil.loggedInEmail();
 
-            Order order = orderRepository.findById(orderId)
+            Order order = orderRepository.findByIdWithDetails(orderId)
                     .orElseThrow(() -> new ResourceNotFoundException("Order", "id", orderId));
 
             // Ensure user can only see their own orders
@@ -111,10 +186,8 @@ public class OrderHistoryController {
                 return new ResponseEntity<>(new APIResponse("You are not authorized to view this order", false), HttpStatus.FORBIDDEN);
             }
 
-            List<OrderItem> orderItems = order.getOrderItems();
-
-            List<OrderItemDTO> orderItemDTOs = orderItems.stream()
-                    .map(item -> modelMapper.map(item, OrderItemDTO.class))
+            List<OrderItemDTO> orderItemDTOs = order.getOrderItems().stream()
+                    .map(this::toOrderItemDTO)
                     .collect(Collectors.toList());
 
             return new ResponseEntity<>(orderItemDTOs, HttpStatus.OK);
@@ -131,34 +204,56 @@ public class OrderHistoryController {
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<?> cancelOrder(@PathVariable Long orderId) {
         try {
-            String email = authUtil.loggedInEmail();
-
-            Order order = orderRepository.findById(orderId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Order", "id", orderId));
-
-            // Ensure user can only cancel their own orders
-            if (!order.getEmail().equals(email)) {
-                return new ResponseEntity<>(new APIResponse("You are not authorized to cancel this order", false), HttpStatus.FORBIDDEN);
-            }
-
-            // Check if order can be canceled (e.g., not already shipped)
-            String currentStatus = order.getOrderStatus().toLowerCase();
-            if (currentStatus.contains("deliver") || currentStatus.contains("complet") ||
-                    currentStatus.contains("ship") || currentStatus.contains("transit") ||
-                    currentStatus.contains("cancel")) {
-                return new ResponseEntity<>(new APIResponse("Order cannot be canceled in its current status", false), HttpStatus.BAD_REQUEST);
-            }
-
-            // Update order status
-            order.setOrderStatus("Canceled");
-            orderRepository.save(order);
+            // Checked and written in one service transaction, so a failure leaves the order unchanged
+            orderService.cancelOrder(orderId, authUtil.loggedInEmail());
 
             return new ResponseEntity<>(new APIResponse("Order canceled successfully", true), HttpStatus.OK);
         } catch (ResourceNotFoundException e) {
             return new ResponseEntity<>(new APIResponse(e.getMessage(), false), HttpStatus.NOT_FOUND);
+        } catch (AccessDeniedException e) {
+            return new ResponseEntity<>(new APIResponse(e.getMessage(), false), HttpStatus.FORBIDDEN);
+        } catch (APIException e) {
+            return new ResponseEntity<>(new APIResponse(e.getMessage(), false), HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             logger.error("Error canceling order: {}", e.getMessage(), e);
             return new ResponseEntity<>(new APIResponse("Error canceling order: " + e.getMessage(), false), HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
-}
\ No newline at end of file
+
+    // Built by hand from the Order.details graph so nothing outside it is lazily loaded
+    private OrderDTO toOrderDTO(Order order) {
+        OrderDTO orderDTO = new OrderDTO();
+        orderDTO.setOrderId(order.getOrderId());
+        orderDTO.setEmail(order.getEmail());
+        orderDTO.setOrderDate(order.getOrderDate());
+        orderDTO.setTotalAmount(order.getTotalAmount());
+        orderDTO.setOrderStatus(order.getOrderStatus());
+        orderDTO.setOrderItemDTOs(order.getOrderItems().stream()
+                .map(this::toOrderItemDTO)
+                .collect(Collectors.toList()));
+
+        Payment payment = order.getPayment();
+        if (payment != null) {
+            orderDTO.setPaymentDTO(new PaymentDTO(payment.getPaymentId(), payment.getPaymentMethod(), payment.getPgPaymentId(),
+                    payment.getPgStatus(), payment.getPgResponseMessage(), payment.getPgName()));
+        }
+
+        Address address = order.getAddress();
+        if (address != null) {
+            orderDTO.setAddressId(address.getAddressId());
+            orderDTO.setAddressDTO(new AddressDTO(address.getAddressId(), address.getStreet(), address.getApartmentNumber(),
+                    address.getCity(), address.getState(), address.getCountry(), address.getZipCode()));
+        }
+
+        return orderDTO;
+    }
+
+    private OrderItemDTO toOrderItemDTO(OrderItem item) {
+        Product product = item.getProduct();
+        ProductDTO productDTO = product == null ? null : new ProductDTO(product.getProductId(), product.getProductName(),
+                product.getImage(), product.getDescription(), product.getQuantity(), product.getPrice(),
+                product.getDiscount(), product.getSpecialPrice());
+        return new OrderItemDTO(item.getOrderItemId(), productDTO, item.getQuantity(), item.getDiscount(),
+                item.getOrderedProductPrice());
+    }
+}
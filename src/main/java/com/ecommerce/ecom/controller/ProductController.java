@@ -13,6 +13,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api")
@@ -72,6 +73,13 @@ public class ProductController {
         return new ResponseEntity<>(productService.deleteProduct(productId), HttpStatus.OK);
     }
 
+    // Deletes many products at once; sellers may only include their own products
+    @PostMapping("/admin/products/bulk-delete")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('SELLER')")
+    public ResponseEntity<List<ProductDTO>> deleteProducts(@RequestBody List<Long> productIds) {
+        return new ResponseEntity<>(productService.deleteProducts(productIds), HttpStatus.OK);
+    }
+
     // Only the product owner (seller) can update product details
     @PutMapping("/admin/products/{productId}")
     @PreAuthorize("hasRole('SELLER') and @productService.isProductOwner(#productId)")
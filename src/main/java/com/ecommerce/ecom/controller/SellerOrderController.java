@@ -1,8 +1,8 @@
 package com.ecommerce.ecom.controller;
 
+import com.ecommerce.ecom.exceptions.APIException;
 import com.ecommerce.ecom.exceptions.ResourceNotFoundException;
 import com.ecommerce.ecom.model.Order;
-import com.ecommerce.ecom.model.OrderItem;
 import com.ecommerce.ecom.model.Product;
 import com.ecommerce.ecom.model.User;
 import com.ecommerce.ecom.payload.APIResponse;
@@ -15,6 +15,8 @@ import com.ecommerce.ecom.payload.SellerDashboardStatsDTO;
 import com.ecommerce.ecom.repositories.OrderItemRepository;
 import com.ecommerce.ecom.repositories.OrderRepository;
 import com.ecommerce.ecom.repositories.ProductRepository;
+import com.ecommerce.ecom.service.OrderService;
+import com.ecommerce.ecom.service.SellerStatsService;
 import com.ecommerce.ecom.util.AuthUtil;
 import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
@@ -26,6 +28,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
@@ -52,6 +55,12 @@ public class SellerOrderController {
     @Autowired
     private AuthUtil authUtil;
 
+    @Autowired
+    private SellerStatsService sellerStatsService;
+
+    @Autowired
+    private OrderService orderService;
+
     // Get dashboard statistics for seller
     @GetMapping("/dashboard/stats")
     @PreAuthorize("hasRole('ROLE_SELLER') or hasRole('ROLE_ADMIN')")
@@ -59,46 +68,8 @@ public class SellerOrderController {
         try {
             User seller = authUtil.loggedInUser();
 
-            // Get all products by this seller
-            List<Product> sellerProducts = productRepository.findByUser(seller);
-            List<Long> productIds = sellerProducts.stream()
-                    .map(Product::getProductId)
-                    .collect(Collectors.toList());
-
-            if (productIds.isEmpty()) {
-                // Return empty stats if seller has no products
-                SellerDashboardStatsDTO stats = new SellerDashboardStatsDTO();
-                stats.setTotalProducts(0L);
-                stats.setTotalOrders(0L);
-                stats.setTotalSales(0.0);
-                stats.setTotalCustomers(0L);
-                return new ResponseEntity<>(stats, HttpStatus.OK);
-            }
-
-            // Get all order items for seller's products
-            List<OrderItem> sellerOrderItems = orderItemRepository.findByProductProductIdIn(productIds);
-
-            // Calculate statistics
-            SellerDashboardStatsDTO stats = new SellerDashboardStatsDTO();
-            stats.setTotalProducts((long) sellerProducts.size());
-
-            // Get unique orders
-            Set<Long> uniqueOrderIds = sellerOrderItems.stream()
-                    .map(item -> item.getOrder().getOrderId())
-                    .collect(Collectors.toSet());
-            stats.setTotalOrders((long) uniqueOrderIds.size());
-
-            // Calculate total sales
-            double totalSales = sellerOrderItems.stream()
-                    .mapToDouble(item -> item.getOrderedProductPrice() * item.getQuantity())
-                    .sum();
-            stats.setTotalSales(totalSales);
-
-            // Get unique customers (by email)
-            Set<String> uniqueCustomers = sellerOrderItems.stream()
-                    .map(item -> item.getOrder().getEmail())
-                    .collect(Collectors.toSet());
-            stats.setTotalCustomers((long) uniqueCustomers.size());
+            // Read from the seller_stats read model kept current as orders are placed and canceled
+            SellerDashboardStatsDTO stats = sellerStatsService.getDashboardStats(seller.getUserId());
 
             return new ResponseEntity<>(stats, HttpStatus.OK);
         } catch (Exception e) {
@@ -318,46 +289,16 @@ public class SellerOrderController {
         try {
             User seller = authUtil.loggedInUser();
 
-            Order order = orderRepository.findById(orderId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Order", "id", orderId));
-
-            // Get seller's product IDs
-            List<Product> sellerProducts = productRepository.findByUser(seller);
-            List<Long> productIds = sellerProducts.stream()
-                    .map(Product::getProductId)
-                    .collect(Collectors.toList());
-
-            // Check if order contains any of seller's products
-            boolean hasSellerProducts = order.getOrderItems().stream()
-                    .anyMatch(item -> productIds.contains(item.getProduct().getProductId()));
-
-            if (!hasSellerProducts) {
-                return new ResponseEntity<>(new APIResponse("You don't have access to this order", false),
-                        HttpStatus.FORBIDDEN);
-            }
-
-            // Sellers can only update to "Shipped" status
-            if (!status.equalsIgnoreCase("Shipped") && !authUtil.loggedInUser().getRoles().stream()
-                    .anyMatch(role -> role.getRoleName().name().equals("ROLE_ADMIN"))) {
-                return new ResponseEntity<>(new APIResponse("Sellers can only update order status to 'Shipped'", false),
-                        HttpStatus.BAD_REQUEST);
-            }
-
-            // Check current status
-            String currentStatus = order.getOrderStatus().toLowerCase();
-            if (currentStatus.contains("deliver") || currentStatus.contains("complet") ||
-                    currentStatus.contains("cancel")) {
-                return new ResponseEntity<>(new APIResponse("Cannot update order in its current status", false),
-                        HttpStatus.BAD_REQUEST);
-            }
-
-            // Update order status
-            order.setOrderStatus(status);
-            orderRepository.save(order);
+            // Checked and written in one service transaction, so a failure leaves the order unchanged
+            orderService.updateOrderStatusForSeller(orderId, status, seller);
 
             return new ResponseEntity<>(new APIResponse("Order status updated successfully", true), HttpStatus.OK);
         } catch (ResourceNotFoundException e) {
             return new ResponseEntity<>(new APIResponse(e.getMessage(), false), HttpStatus.NOT_FOUND);
+        } catch (AccessDeniedException e) {
+            return new ResponseEntity<>(new APIResponse(e.getMessage(), false), HttpStatus.FORBIDDEN);
+        } catch (APIException e) {
+            return new ResponseEntity<>(new APIResponse(e.getMessage(), false), HttpStatus.BAD_REQUEST);
         } catch (Exception e) {
             logger.error("Error updating order status: {}", e.getMessage(), e);
             return new ResponseEntity<>(new APIResponse("Error updating order status: " + e.getMessage(), false),
@@ -0,0 +1,25 @@
+package com.ecommerce.ecom.controller;
+
+import com.ecommerce.ecom.payload.APIResponse;
+import com.ecommerce.ecom.service.SellerStatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api")
+public class SellerStatsController {
+
+    @Autowired
+    private SellerStatsService sellerStatsService;
+
+    @PostMapping("/admin/seller-stats/rebuild")
+    public ResponseEntity<APIResponse> rebuildSellerStats() {
+        int sellers = sellerStatsService.rebuildSellerStats();
+        return new ResponseEntity<>(new APIResponse("Rebuilt stats for " + sellers + " sellers", true),
+                HttpStatus.OK);
+    }
+}
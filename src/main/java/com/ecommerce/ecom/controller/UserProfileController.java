@@ -3,12 +3,14 @@ package com.ecommerce.ecom.controller;
 
 import com.ecommerce.ecom.exceptions.APIException;
 import com.ecommerce.ecom.exceptions.ResourceNotFoundException;
+import com.ecommerce.ecom.exceptions.ServiceBusyException;
 import com.ecommerce.ecom.model.User;
 import com.ecommerce.ecom.payload.APIResponse;
 import com.ecommerce.ecom.payload.UserProfileUpdateDTO;
 import com.ecommerce.ecom.payload.PasswordChangeDTO;
 import com.ecommerce.ecom.repositories.UserRepository;
 import com.ecommerce.ecom.security.services.UserDetailsImpl;
+import com.ecommerce.ecom.security.services.UserDetailsServiceImpl;
 import com.ecommerce.ecom.util.AuthUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,6 +37,9 @@ public class UserProfileController {
     @Autowired
     private AuthUtil authUtil;
 
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
     // Update user email
     @PutMapping("/email")  // Changed from /user/email to just /email
     @PreAuthorize("isAuthenticated()")
@@ -58,6 +63,7 @@ public class UserProfileController {
             // Update the email
             user.setEmail(profileUpdateDTO.getEmail());
             userRepository.save(user);
+            userDetailsService.evict(user.getUsername());
 
             return new ResponseEntity<>(new APIResponse("Email updated successfully", true), HttpStatus.OK);
         } catch (Exception e) {
@@ -97,8 +103,11 @@ public class UserProfileController {
             // Update password
             user.setPassword(passwordEncoder.encode(passwordChangeDTO.getNewPassword()));
             userRepository.save(user);
+            userDetailsService.evict(user.getUsername());
 
             return new ResponseEntity<>(new APIResponse("Password changed successfully", true), HttpStatus.OK);
+        } catch (ServiceBusyException e) {
+            return new ResponseEntity<>(new APIResponse(e.getMessage(), false), HttpStatus.SERVICE_UNAVAILABLE);
         } catch (Exception e) {
             logger.error("Error changing password: {}", e.getMessage(), e);
             return new ResponseEntity<>(new APIResponse("Error changing password: " + e.getMessage(), false), HttpStatus.INTERNAL_SERVER_ERROR);
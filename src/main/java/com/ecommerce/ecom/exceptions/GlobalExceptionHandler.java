@@ -1,6 +1,8 @@
 package com.ecommerce.ecom.exceptions;
 
 import com.ecommerce.ecom.payload.APIResponse;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -39,4 +41,20 @@ public class GlobalExceptionHandler {
         APIResponse apiResponse = new APIResponse(message, false);
         return new ResponseEntity<>(apiResponse, HttpStatus.BAD_REQUEST);
     }
+
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<APIResponse> myServiceBusyException(ServiceBusyException e) {
+        String message = e.getMessage();
+        APIResponse apiResponse = new APIResponse(message, false);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(apiResponse);
+    }
+
+    // Reached only once the retry policy on the mutation has given up
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<APIResponse> myOptimisticLockingFailureException(OptimisticLockingFailureException e) {
+        APIResponse apiResponse = new APIResponse("The resource was modified concurrently, please try again", false);
+        return new ResponseEntity<>(apiResponse, HttpStatus.CONFLICT);
+    }
 }
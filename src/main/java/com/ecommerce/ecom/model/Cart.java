@@ -17,7 +17,7 @@ public class Cart {
     @SequenceGenerator(
             name = "cart_id_seq",
             sequenceName = "cart_id_seq",
-            allocationSize = 1
+            allocationSize = 50
     )
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_id_seq")
     private Long cartId;
@@ -32,4 +32,9 @@ public class Cart {
     private List<CartItem> cartItems = new ArrayList<>();
 
     private Double totalPrice;
-}
\ No newline at end of file
+
+    // Concurrent read-modify-write of the total fails with an optimistic lock error instead of losing an update
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+}
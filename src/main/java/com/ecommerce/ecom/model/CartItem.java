@@ -7,7 +7,9 @@ import lombok.NoArgsConstructor;
 
 @Entity
 @Data
-@Table(name = "cart_items")
+@Table(name = "cart_items", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_cart_items_cart_product", columnNames = {"cart_id", "product_id"})
+})
 @NoArgsConstructor
 @AllArgsConstructor
 public class CartItem {
@@ -16,7 +18,7 @@ public class CartItem {
     @SequenceGenerator(
             name = "cart_item_id_seq",
             sequenceName = "cart_item_id_seq",
-            allocationSize = 1
+            allocationSize = 50
     )
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_item_id_seq")
     private Long cartItemId;
@@ -33,5 +35,11 @@ public class CartItem {
     private double discount;
     private double productPrice;
 
+    // Product.priceVersion that productPrice was copied from
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long priceVersion;
 
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
 }
@@ -20,7 +20,7 @@ public class Category {
     @SequenceGenerator(
             name = "category_id_seq",
             sequenceName = "category_id_seq",
-            allocationSize = 1
+            allocationSize = 50
     )
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "category_id_seq")
     private Long categoryId;
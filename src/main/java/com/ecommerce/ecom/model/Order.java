@@ -1,5 +1,6 @@
 package com.ecommerce.ecom.model;
 
+import com.ecommerce.ecom.config.AppConstants;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import lombok.AllArgsConstructor;
@@ -7,11 +8,25 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+// Everything an order detail response needs, loaded in one select
+@NamedEntityGraph(name = "Order.details",
+        attributeNodes = {
+                @NamedAttributeNode(value = "orderItems", subgraph = "items"),
+                @NamedAttributeNode("payment"),
+                @NamedAttributeNode("address")
+        },
+        subgraphs = @NamedSubgraph(name = "items", attributeNodes = @NamedAttributeNode("product")))
+@Table(name = "orders", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_orders_email_idempotency_key", columnNames = {"email", "idempotency_key"})
+}, indexes = {
+        // Serves keyset pages of a user's order history
+        @Index(name = "idx_orders_email_date_id", columnList = "email, order_date DESC, order_id DESC")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -21,7 +36,7 @@ public class Order {
     @SequenceGenerator(
             name = "order_id_seq",
             sequenceName = "order_id_seq",
-            allocationSize = 1
+            allocationSize = 50
     )
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_id_seq")
     private Long orderId;
@@ -35,13 +50,21 @@ public class Order {
 
     private LocalDate orderDate;
 
-    @OneToOne
+    // Lets orders stuck in Pending be found and re-queued; null on orders created before it was added
+    private LocalDateTime createdAt;
+
+    // Saved with the order in one cascade at checkout, and removed with a discarded pending order
+    @OneToOne(cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REMOVE})
     @JoinColumn(name = "payment_id")
     private Payment payment;
 
     private Double totalAmount;
     private String orderStatus;
 
+    // Set when the order was placed with an idempotency key; a repeat of the key returns this order
+    @Column(length = AppConstants.IDEMPOTENCY_KEY_MAX_LENGTH)
+    private String idempotencyKey;
+
     @ManyToOne
     @JoinColumn(name = "address_id")
     private Address address;
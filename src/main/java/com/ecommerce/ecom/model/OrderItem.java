@@ -3,7 +3,9 @@ package com.ecommerce.ecom.model;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @Entity
 @Table(name="order_items")
@@ -16,7 +18,7 @@ public class OrderItem {
     @SequenceGenerator(
             name = "order_item_id_seq",
             sequenceName = "order_item_id_seq",
-            allocationSize = 1
+            allocationSize = 50
     )
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_id_seq")
     private Long orderItemId;
@@ -27,6 +29,8 @@ public class OrderItem {
 
     @ManyToOne
     @JoinColumn(name = "order_id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude // Back-reference; Order hashes its items
     private Order order;
 
     private Integer quantity;
@@ -5,6 +5,7 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 
@@ -22,7 +23,7 @@ public class Product {
     @SequenceGenerator(
             name = "product_id_seq",
             sequenceName = "product_id_seq",
-            allocationSize = 1
+            allocationSize = 50
     )
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_id_seq")
     private Long productId;
@@ -40,14 +41,26 @@ public class Product {
     private double discount;
     private double specialPrice;
 
-    @ManyToOne
+    // Bumped when price or discount changes; cart items stamped with an older version are repriced lazily
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long priceVersion;
+
+    // Lazy, like cartItems: order and cart reads load products by the line and need neither
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_Id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Category category;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "seller_Id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private User user;
 
-    @OneToMany(mappedBy = "product", cascade = {CascadeType.PERSIST, CascadeType.MERGE}, fetch = FetchType.EAGER)
+    // Lazy: a popular product can be in thousands of carts, none of which catalog reads need
+    @OneToMany(mappedBy = "product", cascade = {CascadeType.PERSIST, CascadeType.MERGE}, fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private List<CartItem> cartItems;
 }
@@ -0,0 +1,46 @@
+package com.ecommerce.ecom.model;
+
+import com.ecommerce.ecom.util.HyperLogLog;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Per-seller dashboard totals, kept current as orders are placed and canceled so the dashboard
+ * is a primary-key read. Can be recomputed from order_items at any time.
+ */
+@Entity
+@Table(name = "seller_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SellerStats {
+
+    // The seller's user id
+    @Id
+    private Long sellerId;
+
+    private long totalProducts;
+
+    // Orders containing at least one of the seller's products, excluding canceled ones
+    private long totalOrders;
+
+    private double totalSales;
+
+    // Estimated from customerSketch; customers of canceled orders stay counted until a rebuild
+    private long totalCustomers;
+
+    @ToString.Exclude
+    @Column(length = HyperLogLog.REGISTER_COUNT)
+    private byte[] customerSketch;
+
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
+    public SellerStats(Long sellerId) {
+        this.sellerId = sellerId;
+    }
+}
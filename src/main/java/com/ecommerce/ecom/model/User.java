@@ -18,16 +18,21 @@ import java.util.Set;
 @NoArgsConstructor
 @Table(name = "users",
         uniqueConstraints = {
-                @UniqueConstraint(columnNames = "email"),
-                @UniqueConstraint(columnNames = "username")
+                @UniqueConstraint(name = User.UK_EMAIL, columnNames = "email"),
+                @UniqueConstraint(name = User.UK_USERNAME, columnNames = "username")
         })
 public class User {
 
+    // Named so a signup that violates one can be told apart without parsing database messages
+    public static final String UK_EMAIL = "uk_users_email";
+
+    public static final String UK_USERNAME = "uk_users_username";
+
     @Id
     @SequenceGenerator(
             name = "user_id_seq",
             sequenceName = "user_id_seq",
-            allocationSize = 1
+            allocationSize = 50
     )
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_id_seq")
     @Column(name = "user_id")
@@ -0,0 +1,22 @@
+package com.ecommerce.ecom.payload;
+
+import com.ecommerce.ecom.config.AppConstants;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartBatchRequestDTO {
+    @NotEmpty
+    @Size(max = AppConstants.CART_BATCH_MAX_OPERATIONS,
+            message = "A cart batch can hold at most " + AppConstants.CART_BATCH_MAX_OPERATIONS + " operations")
+    @Valid
+    private List<CartOperationDTO> operations;
+}
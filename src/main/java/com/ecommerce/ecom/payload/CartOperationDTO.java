@@ -0,0 +1,22 @@
+package com.ecommerce.ecom.payload;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartOperationDTO {
+    // add: increase by quantity, set: replace the quantity (0 removes), remove: drop the product
+    @NotNull
+    @Pattern(regexp = "(?i)add|set|remove", message = "Operation type must be add, set or remove")
+    private String type;
+
+    @NotNull
+    private Long productId;
+
+    private Integer quantity;
+}
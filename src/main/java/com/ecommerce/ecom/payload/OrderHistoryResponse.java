@@ -0,0 +1,17 @@
+package com.ecommerce.ecom.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderHistoryResponse {
+    private List<OrderSummaryDTO> content;
+    private Integer pageSize;
+    private String nextCursor; // Pass back as ?cursor= for the next page; null on the last page
+    private Boolean lastPage;
+}
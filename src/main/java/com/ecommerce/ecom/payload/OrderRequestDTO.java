@@ -14,4 +14,6 @@ public class OrderRequestDTO {
     private String pgPaymentId;
     private String pgStatus;
     private String pgResponseMessage;
+    // Client-generated key that makes retries of the same checkout safe; pgPaymentId is used when absent
+    private String idempotencyKey;
 }
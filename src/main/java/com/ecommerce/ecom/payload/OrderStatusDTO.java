@@ -0,0 +1,15 @@
+package com.ecommerce.ecom.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusDTO {
+    private Long orderId;
+    private String orderStatus;
+    private Double totalAmount;
+    private boolean pending; // True while an async order is still queued or being completed
+}
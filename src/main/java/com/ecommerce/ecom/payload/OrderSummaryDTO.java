@@ -0,0 +1,17 @@
+package com.ecommerce.ecom.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummaryDTO {
+    private Long orderId;
+    private LocalDate orderDate;
+    private String orderStatus;
+    private Double totalAmount;
+}
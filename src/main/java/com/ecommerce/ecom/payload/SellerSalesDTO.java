@@ -0,0 +1,14 @@
+package com.ecommerce.ecom.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SellerSalesDTO {
+    private Long sellerId;
+    private Long totalOrders;
+    private Double totalSales;
+}
@@ -4,9 +4,13 @@ import com.ecommerce.ecom.model.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface CartItemRepository extends JpaRepository<CartItem, Long> {
 
@@ -18,6 +22,122 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     @Query("DELETE FROM CartItem ci WHERE ci.cart.cartId = ?1 AND ci.product.productId = ?2")
     void deleteCartItemByProductIdAndCartId(Long cartId, Long productId);
 
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.cart.cartId = ?1")
+    int deleteByCartId(Long cartId);
+
     @Query("SELECT COUNT(ci) FROM CartItem ci WHERE ci.cart.cartId = ?1")
     Long countByCartId(Long cartId);
+
+    /**
+     * Adds a product to a cart: applies the line-total delta to the cart total, then inserts the
+     * item or increments its quantity and refreshes its price from the product. Both statements
+     * carry the same stock check, so either both apply or neither does. Standard MERGE is used
+     * rather than ON CONFLICT so the statements also run on H2 (PostgreSQL 15 or later is required).
+     * <p>
+     * Callers must hold the cart's row lock ({@link CartRepository#findByIdForUpdate}) first; it
+     * keeps the line unchanged between the two statements and serializes inserts of the same line.
+     * The id for a new line comes from the caller so that only Hibernate's pooled generator
+     * allocates from cart_item_id_seq; it is unused if the line already exists.
+     *
+     * @return 1 if the cart was updated, 0 if the product does not exist or the resulting
+     *         quantity would exceed its stock
+     */
+    default int upsertCartItem(Long cartItemId, Long cartId, Long productId, Integer quantity) {
+        if (addLineTotalDelta(cartId, productId, quantity) == 0) {
+            return 0;
+        }
+        return mergeCartItem(cartItemId, cartId, productId, quantity);
+    }
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            UPDATE carts
+            SET total_price = ROUND(CAST(COALESCE(total_price, 0) + (
+                    SELECT (COALESCE(ci.quantity, 0) + :quantity) * p.special_price
+                           - COALESCE(ci.quantity * ci.product_price, 0)
+                    FROM products p
+                    LEFT JOIN cart_items ci ON ci.product_id = p.product_id AND ci.cart_id = :cartId
+                    WHERE p.product_id = :productId) AS NUMERIC(19, 4)), 2),
+                version = version + 1
+            WHERE cart_id = :cartId
+              AND EXISTS (SELECT 1
+                          FROM products p
+                          LEFT JOIN cart_items ci ON ci.product_id = p.product_id AND ci.cart_id = :cartId
+                          WHERE p.product_id = :productId AND COALESCE(ci.quantity, 0) + :quantity <= p.quantity)
+            """, nativeQuery = true)
+    int addLineTotalDelta(@Param("cartId") Long cartId, @Param("productId") Long productId,
+                          @Param("quantity") Integer quantity);
+
+    @Modifying
+    @Query(value = """
+            MERGE INTO cart_items ci
+            USING (SELECT product_id, special_price, discount, price_version, quantity AS stock
+                   FROM products
+                   WHERE product_id = :productId) p
+            ON ci.cart_id = :cartId AND ci.product_id = p.product_id
+            WHEN MATCHED AND ci.quantity + :quantity <= p.stock THEN
+                UPDATE SET quantity = ci.quantity + :quantity,
+                           discount = p.discount,
+                           product_price = p.special_price,
+                           price_version = p.price_version,
+                           version = ci.version + 1
+            WHEN NOT MATCHED AND :quantity <= p.stock THEN
+                INSERT (cart_item_id, cart_id, product_id, quantity, discount, product_price, price_version, version)
+                VALUES (:cartItemId, :cartId, p.product_id, :quantity, p.discount, p.special_price, p.price_version, 0)
+            """, nativeQuery = true)
+    int mergeCartItem(@Param("cartItemId") Long cartItemId, @Param("cartId") Long cartId,
+                      @Param("productId") Long productId, @Param("quantity") Integer quantity);
+
+    /**
+     * Removes every cart line for the given products, subtracts them from their cart totals and
+     * deletes the carts left without items, in a fixed number of statements however many carts
+     * hold the products. The statements are portable SQL so they also run on H2.
+     *
+     * @return The number of carts that were adjusted, including the deleted ones
+     */
+    default int deleteByProductIdsAndAdjustCarts(Collection<Long> productIds) {
+        int adjusted = subtractLinesFromCartTotals(productIds);
+        List<Long> emptiedCartIds = findCartIdsHoldingOnly(productIds);
+        deleteByProductIds(productIds);
+        if (!emptiedCartIds.isEmpty()) {
+            deleteCartsWithoutItems(emptiedCartIds);
+        }
+        return adjusted;
+    }
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            UPDATE carts
+            SET total_price = ROUND(CAST(COALESCE(total_price, 0) - (
+                    SELECT SUM(ci.quantity * ci.product_price)
+                    FROM cart_items ci
+                    WHERE ci.cart_id = carts.cart_id AND ci.product_id IN (:productIds)) AS NUMERIC(19, 4)), 2),
+                version = version + 1
+            WHERE cart_id IN (SELECT cart_id FROM cart_items WHERE product_id IN (:productIds))
+            """, nativeQuery = true)
+    int subtractLinesFromCartTotals(@Param("productIds") Collection<Long> productIds);
+
+    @Query(value = """
+            SELECT DISTINCT ci.cart_id
+            FROM cart_items ci
+            WHERE ci.product_id IN (:productIds)
+              AND NOT EXISTS (SELECT 1
+                              FROM cart_items other
+                              WHERE other.cart_id = ci.cart_id AND other.product_id NOT IN (:productIds))
+            """, nativeQuery = true)
+    List<Long> findCartIdsHoldingOnly(@Param("productIds") Collection<Long> productIds);
+
+    @Modifying(clearAutomatically = true)
+    @Query(value = "DELETE FROM cart_items WHERE product_id IN (:productIds)", nativeQuery = true)
+    int deleteByProductIds(@Param("productIds") Collection<Long> productIds);
+
+    // Re-checks emptiness, in case an item was added to one of the carts in the meantime
+    @Modifying(clearAutomatically = true)
+    @Query(value = """
+            DELETE FROM carts
+            WHERE cart_id IN (:cartIds)
+              AND NOT EXISTS (SELECT 1 FROM cart_items ci WHERE ci.cart_id = carts.cart_id)
+            """, nativeQuery = true)
+    int deleteCartsWithoutItems(@Param("cartIds") Collection<Long> cartIds);
 }
@@ -1,11 +1,15 @@
 package com.ecommerce.ecom.repositories;
 
 import com.ecommerce.ecom.model.Cart;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
@@ -16,6 +20,31 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
     @Query("SELECT c FROM Cart c WHERE c.user.email = ?1 AND c.cartId = ?2")
     Cart findCartByEmailAndCartId(String emailId, Long cartId);
 
-    @Query("SELECT c FROM Cart c JOIN FETCH c.cartItems ci JOIN FETCH ci.product p WHERE p.id = ?1")
-    List<Cart> findCartsByProductId(Long productId);
+    // Row-locks the user's cart so a checkout waits for cart changes that are already in flight
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Cart c WHERE c.user.email = ?1")
+    Cart findCartByEmailForUpdate(String email);
+
+    // Row-locks the cart so statements that adjust its total from a line's previous value see the latest line
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Cart c WHERE c.cartId = ?1")
+    Optional<Cart> findByIdForUpdate(Long cartId);
+
+    // Recomputes each cart total from its items, touching only carts whose stored total has drifted
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE carts
+            SET total_price = (SELECT CAST(ROUND(CAST(COALESCE(SUM(ci.product_price * ci.quantity), 0) AS NUMERIC(19, 4)), 2)
+                                      AS DOUBLE PRECISION)
+                               FROM cart_items ci
+                               WHERE ci.cart_id = carts.cart_id),
+                version = version + 1
+            WHERE total_price IS DISTINCT FROM (
+                    SELECT CAST(ROUND(CAST(COALESCE(SUM(ci.product_price * ci.quantity), 0) AS NUMERIC(19, 4)), 2)
+                                AS DOUBLE PRECISION)
+                    FROM cart_items ci
+                    WHERE ci.cart_id = carts.cart_id)
+            """, nativeQuery = true)
+    int reconcileTotals();
 }
@@ -2,16 +2,61 @@ package com.ecommerce.ecom.repositories;
 
 import com.ecommerce.ecom.model.OrderItem;
 import com.ecommerce.ecom.model.Product;
+import com.ecommerce.ecom.payload.SellerDashboardStatsDTO;
+import com.ecommerce.ecom.payload.SellerSalesDTO;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
-    // Add this method for seller functionality
-    List<OrderItem> findByProductProductIdIn(List<Long> productIds);
-
     // Check if at least one order item exists for the given product
     boolean existsByProduct(Product product);
-}
\ No newline at end of file
+
+    @Query("SELECT DISTINCT oi.product.productId FROM OrderItem oi WHERE oi.product.productId IN ?1")
+    List<Long> findOrderedProductIds(Collection<Long> productIds);
+
+    // Canceled orders no longer count towards seller totals
+    String NOT_CANCELED = "LOWER(COALESCE(o.orderStatus, '')) NOT LIKE '%cancel%' ";
+
+    // Seller dashboard totals in one round trip; sales are summed at the ordered price
+    @Query("SELECT new com.ecommerce.ecom.payload.SellerDashboardStatsDTO(" +
+           "(SELECT COUNT(p) FROM Product p WHERE p.user.userId = :sellerId), " +
+           "COUNT(DISTINCT o.orderId), " +
+           "COALESCE(SUM(oi.orderedProductPrice * oi.quantity), 0.0), " +
+           "COUNT(DISTINCT o.email)) " +
+           "FROM OrderItem oi JOIN oi.order o " +
+           "WHERE oi.product.user.userId = :sellerId AND " + NOT_CANCELED)
+    SellerDashboardStatsDTO findSellerDashboardStats(@Param("sellerId") Long sellerId);
+
+    // One order's sales split by seller
+    @Query("SELECT new com.ecommerce.ecom.payload.SellerSalesDTO(" +
+           "oi.product.user.userId, COUNT(DISTINCT o.orderId), SUM(oi.orderedProductPrice * oi.quantity)) " +
+           "FROM OrderItem oi JOIN oi.order o " +
+           "WHERE o.orderId = :orderId AND oi.product.user IS NOT NULL " +
+           "GROUP BY oi.product.user.userId")
+    List<SellerSalesDTO> findSellerSalesByOrderId(@Param("orderId") Long orderId);
+
+    // Every seller's order count and sales, for rebuilding seller_stats
+    @Query("SELECT new com.ecommerce.ecom.payload.SellerSalesDTO(" +
+           "oi.product.user.userId, COUNT(DISTINCT o.orderId), SUM(oi.orderedProductPrice * oi.quantity)) " +
+           "FROM OrderItem oi JOIN oi.order o " +
+           "WHERE oi.product.user IS NOT NULL AND " + NOT_CANCELED +
+           "GROUP BY oi.product.user.userId")
+    List<SellerSalesDTO> findSellerSales();
+
+    // Distinct (sellerId, customer email) pairs, for rebuilding the customer sketches
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT DISTINCT oi.product.user.userId, o.email " +
+           "FROM OrderItem oi JOIN oi.order o " +
+           "WHERE oi.product.user IS NOT NULL AND " + NOT_CANCELED)
+    Stream<Object[]> streamSellerCustomers();
+}
@@ -1,13 +1,19 @@
 package com.ecommerce.ecom.repositories;
 
 import com.ecommerce.ecom.model.Order;
+import com.ecommerce.ecom.payload.OrderSummaryDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +22,42 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     // Find orders by email, ordered by date (most recent first)
     List<Order> findByEmailOrderByOrderDateDesc(String email);
 
+    String SELECT_ORDER_SUMMARY = "SELECT new com.ecommerce.ecom.payload.OrderSummaryDTO(" +
+            "o.orderId, o.orderDate, o.orderStatus, o.totalAmount) FROM Order o ";
+
+    // First keyset page of a user's order history; pass PageRequest.ofSize(n) to limit it
+    @Query(SELECT_ORDER_SUMMARY +
+           "WHERE o.email = :email " +
+           "ORDER BY o.orderDate DESC, o.orderId DESC")
+    List<OrderSummaryDTO> findOrderSummaries(@Param("email") String email, Pageable pageable);
+
+    // Keyset page after the given (orderDate, orderId); served by idx_orders_email_date_id
+    @Query(SELECT_ORDER_SUMMARY +
+           "WHERE o.email = :email " +
+           "AND o.orderDate <= :orderDate " +
+           "AND (o.orderDate < :orderDate OR o.orderId < :orderId) " +
+           "ORDER BY o.orderDate DESC, o.orderId DESC")
+    List<OrderSummaryDTO> findOrderSummariesAfter(@Param("email") String email,
+                                                  @Param("orderDate") LocalDate orderDate,
+                                                  @Param("orderId") Long orderId,
+                                                  Pageable pageable);
+
+    Optional<Order> findByEmailAndIdempotencyKey(String email, String idempotencyKey);
+
+    // Serializes completion of a pending order with other status changes
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.orderId = :orderId")
+    Optional<Order> findByIdForUpdate(@Param("orderId") Long orderId);
+
+    boolean existsByEmailAndOrderStatus(String email, String orderStatus);
+
+    // Orders still in the given status that were created before the cutoff (or before createdAt existed)
+    @Query("SELECT o.orderId FROM Order o " +
+           "WHERE o.orderStatus = :status AND (o.createdAt IS NULL OR o.createdAt < :cutoff) " +
+           "ORDER BY o.orderId")
+    List<Long> findOrderIdsByStatusCreatedBefore(@Param("status") String status,
+                                                 @Param("cutoff") LocalDateTime cutoff);
+
     // Find orders containing any of the specified products using a custom query with eager fetching
     @Query("SELECT DISTINCT o FROM Order o " +
            "LEFT JOIN FETCH o.orderItems oi " +
@@ -25,12 +67,8 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
            "WHERE oi.product.productId IN :productIds")
     Page<Order> findOrdersContainingProducts(@Param("productIds") List<Long> productIds, Pageable pageable);
     
-    // Find order by ID with all related entities fetched
-    @Query("SELECT o FROM Order o " +
-           "LEFT JOIN FETCH o.orderItems oi " +
-           "LEFT JOIN FETCH oi.product " +
-           "LEFT JOIN FETCH o.payment " +
-           "LEFT JOIN FETCH o.address " +
-           "WHERE o.orderId = :orderId")
+    // Find order by ID with items, their products, payment and address fetched in one select
+    @EntityGraph("Order.details")
+    @Query("SELECT o FROM Order o WHERE o.orderId = :orderId")
     Optional<Order> findByIdWithDetails(@Param("orderId") Long orderId);
 }
\ No newline at end of file
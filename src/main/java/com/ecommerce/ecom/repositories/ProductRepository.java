@@ -1,22 +1,49 @@
 package com.ecommerce.ecom.repositories;
 
 import com.ecommerce.ecom.model.*;
+import com.ecommerce.ecom.payload.ProductDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
-    Page<Product> findByCategoryOrderByPriceAsc(Category category, Pageable pageable);
-    Page<Product> findByProductNameLikeIgnoreCase(String keyword, Pageable pageable);
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
+    boolean existsByProductName(String productName);
 
     // Find products by user/seller
-    Page<Product> findByUser(User user, Pageable pageable);
+    List<Product> findByUser(User user);
 
-    boolean existsByProductName(String productName);
+    long countByUserUserId(Long sellerId);
 
-    List<Product> findByUser(User user);
+    // (sellerId, product count) for every seller, for rebuilding seller_stats
+    @Query("SELECT p.user.userId, COUNT(p) FROM Product p WHERE p.user IS NOT NULL GROUP BY p.user.userId")
+    List<Object[]> countProductsBySeller();
+
+    // Catalog reads project straight into ProductDTO so no associations are loaded
+    String SELECT_PRODUCT_DTO = "SELECT new com.ecommerce.ecom.payload.ProductDTO(p.productId, p.productName, "
+            + "p.image, p.description, p.quantity, p.price, p.discount, p.specialPrice) FROM Product p";
+
+    @Query(value = SELECT_PRODUCT_DTO,
+            countQuery = "SELECT COUNT(p) FROM Product p")
+    Page<ProductDTO> findAllProductDTOs(Pageable pageable);
+
+    @Query(value = SELECT_PRODUCT_DTO + " WHERE p.category.categoryId = ?1 ORDER BY p.price ASC",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE p.category.categoryId = ?1")
+    Page<ProductDTO> findProductDTOsByCategoryId(Long categoryId, Pageable pageable);
+
+    @Query(value = SELECT_PRODUCT_DTO + " WHERE LOWER(p.productName) LIKE LOWER(?1)",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE LOWER(p.productName) LIKE LOWER(?1)")
+    Page<ProductDTO> findProductDTOsByNameLike(String keyword, Pageable pageable);
+
+    @Query(value = SELECT_PRODUCT_DTO + " WHERE p.user.userId = ?1",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE p.user.userId = ?1")
+    Page<ProductDTO> findProductDTOsBySellerId(Long sellerId, Pageable pageable);
+
+    @Query(SELECT_PRODUCT_DTO + " WHERE p.productId = ?1")
+    Optional<ProductDTO> findProductDTOById(Long productId);
 }
\ No newline at end of file
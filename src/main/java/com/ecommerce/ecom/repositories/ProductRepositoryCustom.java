@@ -0,0 +1,16 @@
+package com.ecommerce.ecom.repositories;
+
+import java.util.List;
+import java.util.Map;
+
+public interface ProductRepositoryCustom {
+
+    /**
+     * Decrements the stock of several products in a single JDBC batch. Each row is only
+     * updated if it still holds enough stock, so concurrent checkouts cannot oversell.
+     *
+     * @param quantitiesByProductId Quantity to subtract, keyed by product id
+     * @return Ids of the products that did not have enough stock and were left unchanged
+     */
+    List<Long> decrementStock(Map<Long, Integer> quantitiesByProductId);
+}
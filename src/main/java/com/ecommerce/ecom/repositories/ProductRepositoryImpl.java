@@ -0,0 +1,40 @@
+package com.ecommerce.ecom.repositories;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Spring Data picks this up as the implementation of ProductRepositoryCustom
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    // The stock check and the decrement are one atomic statement; no row is read or locked beforehand
+    private static final String DECREMENT_STOCK_SQL =
+            "UPDATE products SET quantity = quantity - ? WHERE product_id = ? AND quantity >= ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Long> decrementStock(Map<Long, Integer> quantitiesByProductId) {
+        List<Long> productIds = new ArrayList<>(quantitiesByProductId.size());
+        List<Object[]> batchArgs = new ArrayList<>(quantitiesByProductId.size());
+        quantitiesByProductId.forEach((productId, quantity) -> {
+            productIds.add(productId);
+            batchArgs.add(new Object[]{quantity, productId, quantity});
+        });
+
+        // Runs on the connection of the surrounding JPA transaction
+        int[] updateCounts = jdbcTemplate.batchUpdate(DECREMENT_STOCK_SQL, batchArgs);
+
+        List<Long> insufficient = new ArrayList<>();
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] == 0) {
+                insufficient.add(productIds.get(i));
+            }
+        }
+        return insufficient;
+    }
+}
@@ -0,0 +1,26 @@
+package com.ecommerce.ecom.repositories;
+
+import com.ecommerce.ecom.model.SellerStats;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SellerStatsRepository extends JpaRepository<SellerStats, Long> {
+
+    // Locks every row for a rebuild, so listener updates wait for it instead of being overwritten
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM SellerStats s")
+    List<SellerStats> findAllForUpdate();
+
+    // Serializes concurrent updates to one seller's totals
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM SellerStats s WHERE s.sellerId = :sellerId")
+    Optional<SellerStats> findByIdForUpdate(@Param("sellerId") Long sellerId);
+}
@@ -1,6 +1,7 @@
 package com.ecommerce.ecom.security;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -18,6 +19,7 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 
 import com.ecommerce.ecom.security.jwt.AuthEntryPointJwt;
 import com.ecommerce.ecom.security.jwt.AuthTokenFilter;
+import com.ecommerce.ecom.security.services.BoundedPasswordEncoder;
 import com.ecommerce.ecom.security.services.UserDetailsServiceImpl;
 import org.springframework.web.cors.CorsConfiguration;
 
@@ -33,6 +35,18 @@ public class WebSecurityConfig {
     @Autowired
     private AuthEntryPointJwt unauthorizedHandler;
 
+    @Value("${spring.app.bcryptStrength:10}")
+    private int bcryptStrength;
+
+    @Value("${spring.app.passwordHashing.threads:2}")
+    private int passwordHashingThreads;
+
+    @Value("${spring.app.passwordHashing.queueCapacity:32}")
+    private int passwordHashingQueueCapacity;
+
+    @Value("${spring.app.passwordHashing.timeoutMs:3000}")
+    private long passwordHashingTimeoutMs;
+
     @Bean
     public AuthTokenFilter authenticationJwtTokenFilter() {
         return new AuthTokenFilter();
@@ -43,6 +57,8 @@ public class WebSecurityConfig {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        // Re-hashes stored passwords with the configured BCrypt strength on the next successful login
+        authProvider.setUserDetailsPasswordService(userDetailsService);
         return authProvider;
     }
 
@@ -53,7 +69,8 @@ public class WebSecurityConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(bcryptStrength),
+                passwordHashingThreads, passwordHashingQueueCapacity, passwordHashingTimeoutMs);
     }
 
     @Bean
@@ -87,6 +104,10 @@ public class WebSecurityConfig {
                                 .requestMatchers("/api/public/**").permitAll()
                                 .requestMatchers("/v3/api-docs/**").permitAll()
                                 .requestMatchers("/h2-console/**").permitAll()
+                                .requestMatchers("/actuator/health").permitAll()
+                                .requestMatchers("/actuator/**").hasRole("ADMIN")
+                                .requestMatchers("/api/admin/carts/**").hasRole("ADMIN")
+                                .requestMatchers("/api/admin/seller-stats/**").hasRole("ADMIN")
                                 .requestMatchers("/api/admin/**").hasAnyRole("ADMIN", "SELLER")
                                 .requestMatchers("/api/seller/**").hasRole("SELLER")
                                 .requestMatchers("/api/order/**").hasAnyRole("USER", "ADMIN", "SELLER")
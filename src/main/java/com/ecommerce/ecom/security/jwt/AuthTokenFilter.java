@@ -1,6 +1,8 @@
 package com.ecommerce.ecom.security.jwt;
 
+import com.ecommerce.ecom.security.services.TokenRevocationService;
 import com.ecommerce.ecom.security.services.UserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,11 +10,13 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
@@ -22,9 +26,21 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired
     private JwtUtils jwtUtils;
 
+    @Autowired
+    private JwtTokenVerifier jwtTokenVerifier;
+
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    // Endpoints that must see the current database state of the user rather than the token claims
+    @Value("${spring.app.jwtDbLookupPaths:/api/profile/**}")
+    private String[] dbLookupPaths;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
     private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
     @Override
@@ -36,11 +52,26 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             String jwt = parseJwt(request);
             logger.debug("Extracted JWT: {}", jwt != null ? "Present" : "Not found");
 
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
+            // Parse and verify the token once; repeat tokens are served from the verified cache
+            Claims claims = jwt != null ? jwtTokenVerifier.verify(jwt) : null;
+
+            if (claims != null && tokenRevocationService.isRevoked(claims.getId())) {
+                logger.debug("JWT has been revoked for URI: {}", request.getRequestURI());
+                claims = null;
+            }
+
+            if (claims != null) {
+                String username = claims.getSubject();
                 logger.debug("JWT is valid for user: {}", username);
 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                UserDetails userDetails = requiresDatabaseLookup(request)
+                        ? null
+                        : jwtUtils.getUserDetailsFromClaims(claims);
+
+                // Fall back to the database for sensitive endpoints and for tokens without principal claims
+                if (userDetails == null) {
+                    userDetails = userDetailsService.loadUserByUsername(username);
+                }
                 logger.debug("User details loaded. Authorities: {}", userDetails.getAuthorities());
 
                 UsernamePasswordAuthenticationToken authentication =
@@ -66,6 +97,16 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private boolean requiresDatabaseLookup(HttpServletRequest request) {
+        String path = request.getServletPath();
+        for (String pattern : dbLookupPaths) {
+            if (pathMatcher.match(pattern.trim(), path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String jwt = jwtUtils.getJwtFromAuthorizationHeader(request);
 
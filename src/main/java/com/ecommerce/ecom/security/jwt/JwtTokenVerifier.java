@@ -0,0 +1,106 @@
+package com.ecommerce.ecom.security.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies bearer tokens for the authentication filter.
+ * Tokens that have already been verified are remembered (keyed by a SHA-256 digest of the
+ * token, never the raw token) until they expire, so repeat requests skip signature checks.
+ */
+@Component
+public class JwtTokenVerifier {
+    private static final Logger logger = LoggerFactory.getLogger(JwtTokenVerifier.class);
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    private final Cache<String, Claims> verifiedTokens;
+
+    public JwtTokenVerifier(@Value("${spring.app.jwtVerifiedCacheSize:10000}") long maximumSize) {
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new TokenExpiry())
+                .build();
+    }
+
+    /**
+     * Returns the verified claims of the token, parsing it at most once while it is cached.
+     *
+     * @param token The compact JWT string
+     * @return The token claims, or null if the token is not valid
+     */
+    public Claims verify(String token) {
+        String digest = digest(token);
+
+        Claims claims = verifiedTokens.getIfPresent(digest);
+        if (claims != null && !isExpired(claims)) {
+            return claims;
+        }
+
+        claims = jwtUtils.parseClaims(token);
+        if (claims != null && claims.getExpiration() != null) {
+            verifiedTokens.put(digest, claims);
+        }
+        return claims;
+    }
+
+    /**
+     * Drops a token from the verified cache, e.g. when it is revoked.
+     */
+    public void invalidate(String token) {
+        verifiedTokens.invalidate(digest(token));
+    }
+
+    private static boolean isExpired(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return expiration == null || expiration.getTime() <= System.currentTimeMillis();
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            byte[] hash = sha256.digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM is required to provide SHA-256
+            logger.error("SHA-256 is not available: {}", e.getMessage());
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Evicts each cached entry at the expiry time carried by its own token.
+     */
+    private static class TokenExpiry implements Expiry<String, Claims> {
+        @Override
+        public long expireAfterCreate(String key, Claims claims, long currentTime) {
+            long remainingMs = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
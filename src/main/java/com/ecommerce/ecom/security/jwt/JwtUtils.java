@@ -4,19 +4,31 @@ import com.ecommerce.ecom.security.services.UserDetailsImpl;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import java.security.Key;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Component
 public class JwtUtils {
     private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
+    public static final String CLAIM_USER_ID = "userId";
+    public static final String CLAIM_EMAIL = "email";
+    public static final String CLAIM_ROLES = "roles";
+
     @Value("${spring.app.jwtSecret}")
     private String jwtSecret;
 
@@ -26,6 +38,19 @@ public class JwtUtils {
     @Value("${spring.app.jwtExpirationMsExtended}")
     private long jwtExpirationMsExtended;
 
+    // The signing key and parser are immutable and thread-safe, so they are built once
+    private Key signingKey;
+
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+
     public String getJwtFromAuthorizationHeader(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
         if (StringUtils.hasText(headerAuth) && headerAuth.startsWith("Bearer ")) {
@@ -39,11 +64,16 @@ public class JwtUtils {
     }
 
     public String generateJwtToken(UserDetailsImpl userPrincipal) {
-        return generateTokenFromUsername(userPrincipal.getUsername(), jwtExpirationMs);
+        return generateJwtToken(userPrincipal, jwtExpirationMs);
     }
 
     public String generateJwtToken(UserDetailsImpl userPrincipal, long expirationMs) {
-        return generateTokenFromUsername(userPrincipal.getUsername(), expirationMs);
+        List<String> roles = userPrincipal.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toList());
+
+        return generateTokenFromUsername(userPrincipal.getUsername(), userPrincipal.getId(),
+                userPrincipal.getEmail(), roles, expirationMs);
     }
 
     public String generateTokenFromUsername(String username) {
@@ -52,6 +82,7 @@ public class JwtUtils {
 
     public String generateTokenFromUsername(String username, long expirationMs) {
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(username)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + expirationMs))
@@ -59,35 +90,83 @@ public class JwtUtils {
                 .compact();
     }
 
+    // Embeds the principal in the token so requests can be authenticated without a user lookup
+    public String generateTokenFromUsername(String username, Long userId, String email,
+                                           List<String> roles, long expirationMs) {
+        return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
+                .setSubject(username)
+                .claim(CLAIM_USER_ID, userId)
+                .claim(CLAIM_EMAIL, email)
+                .claim(CLAIM_ROLES, roles)
+                .setIssuedAt(new Date())
+                .setExpiration(new Date((new Date()).getTime() + expirationMs))
+                .signWith(key())
+                .compact();
+    }
+
+    /**
+     * Builds the authenticated principal from the claims of a verified token.
+     *
+     * @param claims Claims of a token that has already been verified
+     * @return The principal, or null if the token predates the principal claims
+     */
+    public UserDetailsImpl getUserDetailsFromClaims(Claims claims) {
+        Object userId = claims.get(CLAIM_USER_ID);
+        Object roles = claims.get(CLAIM_ROLES);
+
+        if (!(userId instanceof Number) || !(roles instanceof List<?> roleNames)) {
+            return null;
+        }
+
+        List<GrantedAuthority> authorities = roleNames.isEmpty()
+                ? Collections.emptyList()
+                : roleNames.stream()
+                        .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(String.valueOf(role)))
+                        .collect(Collectors.toList());
+
+        return new UserDetailsImpl(
+                ((Number) userId).longValue(),
+                claims.getSubject(),
+                claims.get(CLAIM_EMAIL, String.class),
+                null,
+                authorities);
+    }
+
     public String getUserNameFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key())
-                .build()
-                .parseClaimsJws(token)
+        return jwtParser.parseClaimsJws(token)
                 .getBody()
                 .getSubject();
     }
 
     private Key key() {
-        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        return signingKey;
     }
 
     public boolean validateJwtToken(String authToken) {
+        return parseClaims(authToken) != null;
+    }
+
+    /**
+     * Verifies the token signature and expiry and returns its claims in a single parse.
+     *
+     * @param authToken The compact JWT string
+     * @return The token claims, or null if the token is not valid
+     */
+    public Claims parseClaims(String authToken) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(key())
-                    .build()
-                    .parseClaimsJws(authToken);
-            return true;
+            return jwtParser.parseClaimsJws(authToken).getBody();
         } catch (MalformedJwtException e) {
             logger.error("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
             logger.error("JWT token is expired: {}", e.getMessage());
         } catch (UnsupportedJwtException e) {
             logger.error("JWT token is unsupported: {}", e.getMessage());
+        } catch (SignatureException e) {
+            logger.error("Invalid JWT signature: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
             logger.error("JWT claims string is empty: {}", e.getMessage());
         }
-        return false;
+        return null;
     }
 }
\ No newline at end of file
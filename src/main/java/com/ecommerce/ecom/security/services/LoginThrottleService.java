@@ -0,0 +1,83 @@
+package com.ecommerce.ecom.security.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+
+@Service
+public class LoginThrottleService {
+    private static final Logger logger = LoggerFactory.getLogger(LoginThrottleService.class);
+
+    private static final int LOCK_STRIPES = 256;
+
+    private final SlidingWindowRateLimiter usernameLimiter;
+
+    private final SlidingWindowRateLimiter ipLimiter;
+
+    // Held across the check and the charge of both limiters so a concurrent burst cannot overshoot
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public LoginThrottleService(@Value("${spring.app.loginThrottle.windowMs:60000}") long windowMs,
+                                @Value("${spring.app.loginThrottle.maxAttemptsPerUsername:10}") int maxAttemptsPerUsername,
+                                @Value("${spring.app.loginThrottle.maxAttemptsPerIp:50}") int maxAttemptsPerIp,
+                                @Value("${spring.app.loginThrottle.sketchWidth:4096}") int sketchWidth) {
+        this.usernameLimiter = new SlidingWindowRateLimiter(maxAttemptsPerUsername, windowMs, sketchWidth);
+        this.ipLimiter = new SlidingWindowRateLimiter(maxAttemptsPerIp, windowMs, sketchWidth);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Records a sign-in attempt and reports whether it may proceed to password verification.
+     *
+     * @param username The username from the login request
+     * @param clientIp The address the request came from
+     * @return true if neither the username nor the client IP is over its limit
+     */
+    public boolean tryAcquire(String username, String clientIp) {
+        String usernameKey = normalize(username);
+
+        // Lock both keys' stripes in a fixed order so two attempts sharing either key are serialized
+        int ipStripe = stripe(clientIp);
+        int usernameStripe = stripe(usernameKey);
+        synchronized (locks[Math.min(ipStripe, usernameStripe)]) {
+            synchronized (locks[Math.max(ipStripe, usernameStripe)]) {
+                // Check both limits before charging either, so a rejected attempt uses up neither budget
+                if (!ipLimiter.hasCapacity(clientIp)) {
+                    logger.warn("Login throttled for IP: {}", clientIp);
+                    return false;
+                }
+
+                if (!usernameLimiter.hasCapacity(usernameKey)) {
+                    logger.warn("Login throttled for username: {}", username);
+                    return false;
+                }
+
+                ipLimiter.record(clientIp);
+                usernameLimiter.record(usernameKey);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Seconds until a throttled attempt for this username and IP would be let through again.
+     */
+    public long retryAfterSeconds(String username, String clientIp) {
+        long usernameWait = usernameLimiter.hasCapacity(normalize(username)) ? 0 : usernameLimiter.retryAfterSeconds(normalize(username));
+        long ipWait = ipLimiter.hasCapacity(clientIp) ? 0 : ipLimiter.retryAfterSeconds(clientIp);
+        return Math.max(1, Math.max(usernameWait, ipWait));
+    }
+
+    private static String normalize(String username) {
+        return username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static int stripe(String key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES;
+    }
+}
@@ -0,0 +1,184 @@
+package com.ecommerce.ecom.security.services;
+
+import com.ecommerce.ecom.util.HashUtils;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Approximate sliding-window rate limiter with constant memory.
+ * <p>
+ * Attempts are counted in a count-min sketch (a few rows of lock-free counters striped by
+ * independent hashes of the key) for the current and the previous fixed window. The sliding
+ * count is the current window plus the previous window weighted by how much of it still
+ * overlaps the sliding window, so old attempts decay away linearly. Hash collisions can only
+ * over-estimate a key's count, never under-estimate it.
+ * <p>
+ * {@link #hasCapacity} and {@link #record} are separate steps so a caller can check several
+ * limiters before charging any of them; such a caller must serialize them per key itself
+ * (see {@link LoginThrottleService}). {@link #tryAcquire} does this on its own lock stripes.
+ */
+public class SlidingWindowRateLimiter {
+    private static final int DEPTH = 4;
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final int limit;
+
+    private final long windowMs;
+
+    private final int mask;
+
+    // Random per-instance seed so colliding keys cannot be precomputed
+    private final long seed = ThreadLocalRandom.current().nextLong();
+
+    // Sketches for even and odd window numbers; the slot of a new window is cleared when it starts
+    private final AtomicIntegerArray[] windows = new AtomicIntegerArray[2];
+
+    private final AtomicLong currentWindow;
+
+    private final LongSupplier clock;
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public SlidingWindowRateLimiter(int limit, long windowMs, int width) {
+        this(limit, windowMs, width, System::currentTimeMillis);
+    }
+
+    SlidingWindowRateLimiter(int limit, long windowMs, int width, LongSupplier clock) {
+        if (Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("Width must be a power of two: " + width);
+        }
+        this.limit = limit;
+        this.windowMs = windowMs;
+        this.mask = width - 1;
+        this.clock = clock;
+        this.windows[0] = new AtomicIntegerArray(width * DEPTH);
+        this.windows[1] = new AtomicIntegerArray(width * DEPTH);
+        this.currentWindow = new AtomicLong(clock.getAsLong() / windowMs);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Records an attempt for the key unless the key is already over the limit.
+     *
+     * @param key The throttled key, e.g. a username or client IP
+     * @return true if the attempt is allowed
+     */
+    public boolean tryAcquire(String key) {
+        // Concurrent attempts for one key must not all pass the check before any is counted
+        synchronized (locks[(key.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES]) {
+            if (!hasCapacity(key)) {
+                return false;
+            }
+            record(key);
+            return true;
+        }
+    }
+
+    /**
+     * Reports whether another attempt for the key would be allowed, without counting one.
+     */
+    public boolean hasCapacity(String key) {
+        long now = clock.getAsLong();
+        long window = now / windowMs;
+        rotateTo(window);
+
+        AtomicIntegerArray current = windows[(int) (window & 1)];
+        AtomicIntegerArray previous = windows[(int) ((window + 1) & 1)];
+        double previousWeight = 1.0 - (double) (now % windowMs) / windowMs;
+
+        long hash = HashUtils.hash64(key, seed);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+
+        double estimate = Double.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = row * (mask + 1) + ((h1 + row * h2) & mask);
+            estimate = Math.min(estimate, current.get(index) + previous.get(index) * previousWeight);
+        }
+        return estimate < limit;
+    }
+
+    /**
+     * Counts an attempt for the key in the current window.
+     */
+    public void record(String key) {
+        long window = clock.getAsLong() / windowMs;
+        rotateTo(window);
+
+        AtomicIntegerArray current = windows[(int) (window & 1)];
+        long hash = HashUtils.hash64(key, seed);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int row = 0; row < DEPTH; row++) {
+            current.incrementAndGet(row * (mask + 1) + ((h1 + row * h2) & mask));
+        }
+    }
+
+    /**
+     * Seconds until the key's sliding count has decayed enough for another attempt, assuming no
+     * further attempts are counted meanwhile. Returns at least one second.
+     */
+    public long retryAfterSeconds(String key) {
+        long now = clock.getAsLong();
+        long window = now / windowMs;
+        rotateTo(window);
+
+        AtomicIntegerArray current = windows[(int) (window & 1)];
+        AtomicIntegerArray previous = windows[(int) ((window + 1) & 1)];
+        long elapsed = now % windowMs;
+
+        long hash = HashUtils.hash64(key, seed);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+
+        // The estimate is the minimum over the rows, so it drops below the limit as soon as any row does
+        long waitMs = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = row * (mask + 1) + ((h1 + row * h2) & mask);
+            waitMs = Math.min(waitMs, millisUntilUnderLimit(current.get(index), previous.get(index), elapsed));
+        }
+        return Math.max(1, (waitMs + 999) / 1000);
+    }
+
+    private long millisUntilUnderLimit(int current, int previous, long elapsed) {
+        if (current >= limit) {
+            // The current window has to become the previous one and then decay below the limit
+            long decay = (long) Math.floor(windowMs * (1.0 - (double) limit / current)) + 1;
+            return windowMs - elapsed + decay;
+        }
+        if (previous == 0) {
+            return 0;
+        }
+        // current + previous * (1 - t / windowMs) < limit once t passes this offset into the window
+        long offset = (long) Math.floor(windowMs * (1.0 - (double) (limit - current) / previous)) + 1;
+        return Math.max(0, offset - elapsed);
+    }
+
+    private void rotateTo(long window) {
+        long seen = currentWindow.get();
+        while (window > seen) {
+            if (currentWindow.compareAndSet(seen, window)) {
+                // The new window's slot still holds counts from two windows ago
+                clear(windows[(int) (window & 1)]);
+                if (window - seen > 1) {
+                    // No traffic in the previous window, so its slot is stale as well
+                    clear(windows[(int) ((window + 1) & 1)]);
+                }
+                return;
+            }
+            seen = currentWindow.get();
+        }
+    }
+
+    private static void clear(AtomicIntegerArray counters) {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.lazySet(i, 0);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.ecommerce.ecom.security.services;
+
+import com.ecommerce.ecom.model.RevokedToken;
+import com.ecommerce.ecom.repositories.RevokedTokenRepository;
+import com.ecommerce.ecom.util.BloomFilter;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks JWTs revoked before their expiry (e.g. on sign-out), keyed by the jti claim.
+ * <p>
+ * Lookups never touch the database: a Bloom filter rejects almost every unrevoked token with a
+ * few bit reads, and only possible hits consult the exact in-memory set. Revocations are also
+ * persisted so the set is rebuilt on startup, and entries are dropped once the token expires.
+ */
+@Service
+public class TokenRevocationService {
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Value("${spring.app.tokenRevocation.expectedRevocations:100000}")
+    private long expectedRevocations;
+
+    // jti -> token expiry in epoch millis
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter bloomFilter;
+
+    @PostConstruct
+    void loadRevokedTokens() {
+        bloomFilter = new BloomFilter(expectedRevocations, FALSE_POSITIVE_RATE);
+        revokedTokenRepository.findByExpiresAtAfter(Instant.now())
+                .forEach(token -> remember(token.getJti(), token.getExpiresAt().toEpochMilli()));
+        logger.info("Loaded {} revoked tokens", revokedTokens.size());
+    }
+
+    public boolean isRevoked(String jti) {
+        if (jti == null || !bloomFilter.mightContain(jti)) {
+            return false;
+        }
+
+        Long expiresAt = revokedTokens.get(jti);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    public void revoke(String jti, Date expiresAt) {
+        if (jti == null || expiresAt == null || isRevoked(jti)) {
+            return;
+        }
+
+        revokedTokenRepository.save(new RevokedToken(jti, expiresAt.toInstant()));
+        remember(jti, expiresAt.getTime());
+    }
+
+    // Drops expired revocations and rebuilds the Bloom filter, which cannot remove entries itself
+    @Scheduled(fixedDelayString = "${spring.app.tokenRevocation.cleanupIntervalMs:600000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, 2L * revokedTokens.size()),
+                FALSE_POSITIVE_RATE);
+        // Fill before the swap so lookups never see a partly built filter
+        revokedTokens.keySet().forEach(rebuilt::add);
+        bloomFilter = rebuilt;
+        // And again after it, so revocations added to the old filter during the rebuild are not lost
+        revokedTokens.keySet().forEach(rebuilt::add);
+
+        int deleted = revokedTokenRepository.deleteExpired(Instant.ofEpochMilli(now));
+        logger.debug("Purged {} expired revoked tokens", deleted);
+    }
+
+    private void remember(String jti, long expiresAt) {
+        revokedTokens.put(jti, expiresAt);
+        bloomFilter.add(jti);
+    }
+}
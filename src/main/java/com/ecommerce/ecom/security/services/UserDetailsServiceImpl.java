@@ -1,28 +1,96 @@
 package com.ecommerce.ecom.security.services;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import com.ecommerce.ecom.model.User;
 import com.ecommerce.ecom.repositories.UserRepository;
 
+import java.time.Duration;
+
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
+    private static final String CACHE_NAME = "userDetails";
+
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    // Built principals (roles included) by username; entries are evicted whenever the user changes
+    private final Cache<String, UserDetailsImpl> userDetailsCache;
+
+    private Counter invalidations;
+
+    public UserDetailsServiceImpl(@Value("${spring.app.userDetailsCache.maxSize:10000}") long maxSize,
+                                  @Value("${spring.app.userDetailsCache.ttlSeconds:300}") long ttlSeconds) {
+        this.userDetailsCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        // Exposes cache.gets (hit/miss), cache.evictions and cache.size tagged cache=userDetails
+        CaffeineCacheMetrics.monitor(meterRegistry, userDetailsCache, CACHE_NAME);
+        invalidations = Counter.builder("cache.invalidations")
+                .tag("cache", CACHE_NAME)
+                .description("Explicit invalidations after profile, password or account changes")
+                .register(meterRegistry);
+    }
+
     @Override
-    @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + username));
+        UserDetailsImpl userDetails = userDetailsCache.getIfPresent(username);
+
+        if (userDetails == null) {
+            // Roles are fetched eagerly with the user, so the principal is complete once built
+            User user = userRepository.findByUsername(username)
+                    .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + username));
+
+            userDetails = UserDetailsImpl.build(user);
+            userDetailsCache.put(username, userDetails);
+        }
+
+        // Hand out a copy so callers can never modify the cached principal
+        return new UserDetailsImpl(userDetails.getId(), userDetails.getUsername(), userDetails.getEmail(),
+                userDetails.getPassword(), userDetails.getAuthorities());
+    }
+
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepository.findByUsername(userDetails.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + userDetails.getUsername()));
+
+        user.setPassword(newPassword);
+        userRepository.save(user);
+        evict(user.getUsername());
 
         return UserDetailsImpl.build(user);
     }
 
+    /**
+     * Removes the cached principal of a user whose profile, password or roles changed.
+     *
+     * @param username The username of the changed user
+     */
+    public void evict(String username) {
+        userDetailsCache.invalidate(username);
+        invalidations.increment();
+    }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,351 @@
+package com.ecommerce.ecom.service;
+
+import com.ecommerce.ecom.exceptions.ServiceBusyException;
+import com.ecommerce.ecom.payload.CartDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Merges rapid +/- quantity clicks on the same cart into one transaction.
+ * <p>
+ * The first click on an idle cart schedules a flush at once (after {@code windowMs}, 0 by
+ * default), so an uncontended click pays no extra latency. Clicks on that cart arriving before the
+ * flush runs, including while an earlier flush of the cart is still in its transaction, join the
+ * pending change; the flush applies the net delta of every line in one transaction and returns the
+ * resulting cart to every waiting caller. Carts are striped across single-threaded workers, one
+ * per pooled database connection unless configured otherwise, so changes to one cart are applied
+ * in order and never race.
+ * <p>
+ * A merged change that the cart rejects, e.g. because the net increase exceeds the stock, is
+ * replayed click by click, so each caller gets the same outcome as an unmerged click would.
+ * <p>
+ * A click whose caller gives up before its window is flushed is withdrawn, so a client retry
+ * after a 503 never applies the same click twice. A change that loses an optimistic lock race is
+ * put back and flushed again after a jittered backoff, instead of the stripe worker sleeping
+ * through the backoff while other carts on the same stripe wait.
+ */
+@Component
+public class CartMutationCoalescer implements DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(CartMutationCoalescer.class);
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final long windowMs;
+
+    private final long timeoutMs;
+
+    private final int maxAttempts;
+
+    private final long initialDelayMs;
+
+    private final double multiplier;
+
+    private final long maxDelayMs;
+
+    private final ScheduledExecutorService[] stripes;
+
+    private final Map<Long, PendingChange> pendingChanges = new ConcurrentHashMap<>();
+
+    private volatile boolean shuttingDown;
+
+    private DistributionSummary batchSize;
+
+    private Counter coalesced;
+
+    private Counter withdrawn;
+
+    private Counter conflicts;
+
+    private Counter replayed;
+
+    @Autowired
+    public CartMutationCoalescer(@Value("${spring.app.cartCoalescer.windowMs:0}") long windowMs,
+                                 @Value("${spring.app.cartCoalescer.stripes:0}") int stripeCount,
+                                 @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize,
+                                 @Value("${spring.app.cartCoalescer.timeoutMs:5000}") long timeoutMs,
+                                 @Value("${spring.app.cartRetry.maxAttempts:4}") int maxAttempts,
+                                 @Value("${spring.app.cartRetry.initialDelayMs:20}") long initialDelayMs,
+                                 @Value("${spring.app.cartRetry.multiplier:2}") double multiplier,
+                                 @Value("${spring.app.cartRetry.maxDelayMs:200}") long maxDelayMs) {
+        // Each stripe holds at most one connection, so by default there are as many as the pool can serve
+        this(windowMs, timeoutMs, maxAttempts, initialDelayMs, multiplier, maxDelayMs,
+                newStripes(stripeCount > 0 ? stripeCount : connectionPoolSize));
+    }
+
+    // Lets tests drive the windows and backoffs with their own schedulers instead of real time
+    CartMutationCoalescer(long windowMs, long timeoutMs, int maxAttempts, long initialDelayMs,
+                          double multiplier, long maxDelayMs, ScheduledExecutorService[] stripes) {
+        this.windowMs = windowMs;
+        this.timeoutMs = timeoutMs;
+        this.maxAttempts = maxAttempts;
+        this.initialDelayMs = initialDelayMs;
+        this.multiplier = multiplier;
+        this.maxDelayMs = maxDelayMs;
+        this.stripes = stripes;
+    }
+
+    private static ScheduledExecutorService[] newStripes(int stripeCount) {
+        ScheduledExecutorService[] stripes = new ScheduledExecutorService[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            String threadName = "cart-mutation-" + (i + 1);
+            stripes[i] = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return stripes;
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        batchSize = DistributionSummary.builder("cart.mutation.batch.size")
+                .description("Quantity clicks applied per cart transaction")
+                .register(meterRegistry);
+        coalesced = Counter.builder("cart.mutation.coalesced")
+                .description("Quantity clicks merged into another click's transaction")
+                .register(meterRegistry);
+        withdrawn = Counter.builder("cart.mutation.withdrawn")
+                .description("Quantity clicks dropped because the caller timed out before they were applied")
+                .register(meterRegistry);
+        conflicts = Counter.builder("cart.mutation.coalescer.conflicts")
+                .description("Merged quantity changes put back for another attempt after a concurrent update")
+                .register(meterRegistry);
+        replayed = Counter.builder("cart.mutation.replayed")
+                .description("Merged quantity changes rejected by the cart and replayed click by click")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues a quantity change and waits for the merged result.
+     *
+     * @param cartId The cart to change
+     * @param productId The product whose quantity changes
+     * @param delta +1 for an increase, -1 for a decrease
+     * @return The cart after the merged change has been applied
+     */
+    public CartDTO changeQuantity(Long cartId, Long productId, int delta) {
+        Click click = enqueue(cartId, productId, delta);
+
+        try {
+            try {
+                return click.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (withdraw(cartId, click)) {
+                    logger.warn("Cart {} quantity change did not complete within {} ms", cartId, timeoutMs);
+                    throw new ServiceBusyException("Server is busy, please try again shortly");
+                }
+            }
+            // Already claimed by a running flush, so the change will apply; wait a bounded time for its real outcome
+            try {
+                return click.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                logger.warn("Cart {} quantity change still in progress after {} ms", cartId, 2 * timeoutMs);
+                throw new ServiceBusyException("Cart update is still in progress, please reload the cart before retrying");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Cart update was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    Click enqueue(Long cartId, Long productId, int delta) {
+        if (shuttingDown) {
+            throw new ServiceBusyException("Server is shutting down, please try again shortly");
+        }
+        Click click = new Click(productId, delta);
+
+        // compute() is atomic per key, so a click either joins the pending change or starts a new one
+        try {
+            pendingChanges.compute(cartId, (k, pending) -> {
+                if (pending == null) {
+                    pending = new PendingChange();
+                    schedule(k, pending, windowMs);
+                }
+                pending.clicks.add(click);
+                return pending;
+            });
+        } catch (RejectedExecutionException e) {
+            throw new ServiceBusyException("Server is shutting down, please try again shortly");
+        }
+        return click;
+    }
+
+    /**
+     * Takes a click back out of its pending change if it has not been flushed yet.
+     *
+     * @return true if the click was withdrawn and will never be applied
+     */
+    boolean withdraw(Long cartId, Click click) {
+        boolean[] removed = new boolean[1];
+        pendingChanges.computeIfPresent(cartId, (k, pending) -> {
+            removed[0] = pending.clicks.remove(click);
+            // An emptied change is dropped; its scheduled flush then finds nothing to apply
+            return pending.clicks.isEmpty() ? null : pending;
+        });
+        if (removed[0]) {
+            withdrawn.increment();
+        }
+        return removed[0];
+    }
+
+    private void flush(Long cartId, PendingChange pending) {
+        // Claim the change; a click withdrawn before this point is no longer part of it
+        if (!pendingChanges.remove(cartId, pending)) {
+            return;
+        }
+
+        if (pending.attempts == 0) {
+            batchSize.record(pending.clicks.size());
+            coalesced.increment(pending.clicks.size() - 1);
+        }
+        pending.attempts++;
+
+        try {
+            CartDTO cartDTO = cartService.applyQuantityChanges(cartId, netDeltas(pending.clicks));
+            pending.clicks.forEach(click -> click.result.complete(cartDTO));
+        } catch (OptimisticLockingFailureException e) {
+            if (pending.attempts >= maxAttempts) {
+                logger.warn("Cart {} quantity change gave up after {} conflicting attempts", cartId, pending.attempts);
+                pending.clicks.forEach(click -> click.result.completeExceptionally(e));
+                return;
+            }
+            conflicts.increment();
+            retry(cartId, pending);
+        } catch (RuntimeException e) {
+            if (pending.clicks.size() == 1) {
+                pending.clicks.get(0).result.completeExceptionally(e);
+                return;
+            }
+            replayed.increment();
+            replay(cartId, pending.clicks);
+        }
+    }
+
+    // Nets the clicks per product, keeping the order in which lines were first clicked
+    private static Map<Long, Integer> netDeltas(List<Click> clicks) {
+        Map<Long, Integer> deltas = new LinkedHashMap<>();
+        for (Click click : clicks) {
+            deltas.merge(click.productId, click.delta, Integer::sum);
+        }
+        return deltas;
+    }
+
+    // Applies each click on its own, in arrival order, as the unmerged path would have
+    private void replay(Long cartId, List<Click> clicks) {
+        for (Click click : clicks) {
+            try {
+                click.result.complete(cartService.applyQuantityChange(cartId, click.productId, click.delta));
+            } catch (RuntimeException e) {
+                click.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void retry(Long cartId, PendingChange pending) {
+        if (shuttingDown) {
+            failAll(pending);
+            return;
+        }
+        long delayMs = backoffMs(pending.attempts);
+        try {
+            pendingChanges.compute(cartId, (k, open) -> {
+                if (open != null) {
+                    // A newer change is already scheduled; ride along with it rather than overtaking it
+                    open.clicks.addAll(pending.clicks);
+                    open.attempts = Math.max(open.attempts, pending.attempts);
+                    return open;
+                }
+                schedule(k, pending, delayMs);
+                return pending;
+            });
+        } catch (RejectedExecutionException e) {
+            // The stripes shut down between the check above and the reschedule
+            failAll(pending);
+        }
+    }
+
+    // Jittered exponential backoff using the same spring.app.cartRetry.* settings as @RetryOnCartConflict
+    long backoffMs(int failedAttempts) {
+        double cap = Math.min(maxDelayMs, initialDelayMs * Math.pow(multiplier, failedAttempts - 1));
+        long floor = Math.min(initialDelayMs, (long) cap);
+        return floor + (long) (ThreadLocalRandom.current().nextDouble() * (cap - floor));
+    }
+
+    private void schedule(Long cartId, PendingChange pending, long delayMs) {
+        stripeFor(cartId).schedule(() -> flush(cartId, pending), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private ScheduledExecutorService stripeFor(Long cartId) {
+        return stripes[Math.floorMod(cartId.hashCode(), stripes.length)];
+    }
+
+    @Override
+    public void destroy() {
+        shuttingDown = true;
+        for (ScheduledExecutorService stripe : stripes) {
+            stripe.shutdownNow();
+        }
+        // shutdownNow() drops queued flushes, so release their waiters instead of leaving them blocked
+        for (Long cartId : pendingChanges.keySet()) {
+            PendingChange pending = pendingChanges.remove(cartId);
+            if (pending != null) {
+                failAll(pending);
+            }
+        }
+    }
+
+    private static void failAll(PendingChange pending) {
+        ServiceBusyException e = new ServiceBusyException("Server is shutting down, please try again shortly");
+        pending.clicks.forEach(click -> click.result.completeExceptionally(e));
+    }
+
+    static final class Click {
+        private final Long productId;
+        private final int delta;
+        final CompletableFuture<CartDTO> result = new CompletableFuture<>();
+
+        private Click(Long productId, int delta) {
+            this.productId = productId;
+            this.delta = delta;
+        }
+    }
+
+    // Only touched inside compute() or after removal from the map, so no further locking is needed
+    private static class PendingChange {
+        private int attempts;
+        private final List<Click> clicks = new ArrayList<>();
+    }
+}
@@ -0,0 +1,65 @@
+package com.ecommerce.ecom.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts optimistic lock conflicts on cart mutations and the retries they cause.
+ * Referenced by name from {@link RetryOnCartConflict}.
+ */
+@Component("cartRetryListener")
+public class CartRetryListener implements RetryListener {
+    private static final Logger logger = LoggerFactory.getLogger(CartRetryListener.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter conflicts;
+    private Counter retries;
+    private Counter exhausted;
+
+    @PostConstruct
+    void registerMetrics() {
+        conflicts = Counter.builder("cart.mutation.conflicts")
+                .description("Cart mutations that failed on a concurrent update")
+                .register(meterRegistry);
+        retries = Counter.builder("cart.mutation.retries")
+                .description("Cart mutation attempts repeated after a conflict")
+                .register(meterRegistry);
+        exhausted = Counter.builder("cart.mutation.retries.exhausted")
+                .description("Cart mutations that still conflicted after the last attempt")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback,
+                                                 Throwable throwable) {
+        // Business errors such as insufficient stock also pass through here but are not retried
+        if (throwable instanceof OptimisticLockingFailureException) {
+            conflicts.increment();
+        }
+    }
+
+    @Override
+    public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback,
+                                               Throwable throwable) {
+        // Only conflicts are retried, so every failed attempt except a final one led to a retry
+        int failedAttempts = context.getRetryCount();
+        retries.increment(throwable == null ? failedAttempts : Math.max(failedAttempts - 1, 0));
+
+        if (throwable instanceof OptimisticLockingFailureException) {
+            exhausted.increment();
+            logger.warn("Cart mutation gave up after {} conflicting attempts: {}",
+                    failedAttempts, throwable.getMessage());
+        }
+    }
+}
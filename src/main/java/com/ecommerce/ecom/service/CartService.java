@@ -1,9 +1,12 @@
 package com.ecommerce.ecom.service;
 
+import com.ecommerce.ecom.model.Cart;
 import com.ecommerce.ecom.payload.CartDTO;
+import com.ecommerce.ecom.payload.CartOperationDTO;
 import jakarta.transaction.Transactional;
 
 import java.util.List;
+import java.util.Map;
 
 public interface CartService {
     CartDTO addProductToCart(Long productId, Integer quantity);
@@ -17,9 +20,17 @@ public interface CartService {
 
     CartDTO updateProductQuantityInCart(Long productId, String operation);
 
+    CartDTO applyQuantityChange(Long cartId, Long productId, int delta);
+
+    CartDTO applyQuantityChanges(Long cartId, Map<Long, Integer> deltas);
+
+    CartDTO applyCartOperations(List<CartOperationDTO> operations);
+
     String deleteProductFromCart(Long cartId, Long productId);
 
-    void updateProductInCarts(Long cartId, Long productId);
+    void reconcilePrices(Cart cart);
 
     String deleteEmptyCart(String email);
+
+    int reconcileCartTotals();
 }
@@ -1,5 +1,6 @@
 package com.ecommerce.ecom.service;
 
+import com.ecommerce.ecom.config.AppConstants;
 import com.ecommerce.ecom.exceptions.APIException;
 import com.ecommerce.ecom.exceptions.ResourceNotFoundException;
 import com.ecommerce.ecom.model.Cart;
@@ -7,24 +8,35 @@ import com.ecommerce.ecom.model.CartItem;
 import com.ecommerce.ecom.model.Product;
 import com.ecommerce.ecom.model.User;
 import com.ecommerce.ecom.payload.CartDTO;
+import com.ecommerce.ecom.payload.CartOperationDTO;
 import com.ecommerce.ecom.payload.ProductDTO;
 import com.ecommerce.ecom.repositories.CartItemRepository;
 import com.ecommerce.ecom.repositories.CartRepository;
+import com.ecommerce.ecom.repositories.OrderRepository;
 import com.ecommerce.ecom.repositories.ProductRepository;
 import com.ecommerce.ecom.repositories.UserRepository;
 import com.ecommerce.ecom.util.AuthUtil;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
-import jakarta.transaction.Transactional;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.persister.entity.EntityPersister;
 import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Stream;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class CartServiceImpl implements CartService {
@@ -43,6 +55,9 @@ public class CartServiceImpl implements CartService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private OrderRepository orderRepository;
+
     @Autowired
     private AuthUtil authUtil;
 
@@ -53,95 +68,142 @@ public class CartServiceImpl implements CartService {
     private EntityManager entityManager;
 
     /**
-     * Recalculates the total price of a cart based on its items
-     * This ensures the price is always correct regardless of past operations
+     * Applies a price delta to the cart total instead of recalculating it from every item.
+     * The cart is managed, so the new total is flushed together with the item change.
+     * Drift from rounding or concurrent edits is corrected by {@link #reconcileCartTotals()}.
      *
-     * @param cart The cart to recalculate totals for
-     * @return The updated cart with correct total price
+     * @param cart The cart whose total changes
+     * @param delta New line total minus old line total
      */
-    private Cart recalculateCartTotal(Cart cart) {
-        if (cart == null) return null;
+    private void applyTotalDelta(Cart cart, double delta) {
+        double totalPrice = cart.getTotalPrice() == null ? 0.0 : cart.getTotalPrice();
+        // Ensure precision - round to 2 decimal places
+        cart.setTotalPrice(Math.round((totalPrice + delta) * 100.0) / 100.0);
+    }
 
-        // Get fresh cart data from database to avoid stale collections
-        Long cartId = cart.getCartId();
-        cart = cartRepository.findById(cartId).orElse(cart);
+    private static double lineTotal(CartItem item) {
+        return item.getProductPrice() * item.getQuantity();
+    }
 
-        double totalPrice = 0.0;
+    // Copies the product's current price onto the item, stamped with the product's price version
+    private static void stampPrice(CartItem item, Product product) {
+        item.setProductPrice(product.getSpecialPrice());
+        item.setDiscount(product.getDiscount());
+        item.setPriceVersion(product.getPriceVersion());
+    }
 
-        // Calculate total based on current items in cart
-        if (cart.getCartItems() != null && !cart.getCartItems().isEmpty()) {
-            // Use a new ArrayList to avoid ConcurrentModificationException
-            List<CartItem> items = new ArrayList<>(cart.getCartItems());
+    private static boolean isPriceStale(CartItem item) {
+        return item.getPriceVersion() != item.getProduct().getPriceVersion();
+    }
 
-            for (CartItem item : items) {
-                if (item.getProduct() != null) {
-                    // Use the item's stored product price (which should reflect special price)
-                    totalPrice += item.getProductPrice() * item.getQuantity();
-                }
+    /**
+     * Reprices items whose product price changed since they were stamped.
+     * Product updates no longer touch carts; each cart catches up here on its next change or at checkout.
+     *
+     * @param cart A managed cart
+     */
+    @Override
+    public void reconcilePrices(Cart cart) {
+        for (CartItem item : cart.getCartItems()) {
+            if (isPriceStale(item)) {
+                double oldLineTotal = lineTotal(item);
+                stampPrice(item, item.getProduct());
+                applyTotalDelta(cart, lineTotal(item) - oldLineTotal);
             }
         }
+    }
 
-        // Ensure precision - round to 2 decimal places
-        totalPrice = Math.round(totalPrice * 100.0) / 100.0;
+    // A pending order is completed from the live cart, so the cart is frozen until the order is settled
+    private void ensureNoPendingOrder(String email) {
+        if (orderRepository.existsByEmailAndOrderStatus(email, AppConstants.ORDER_STATUS_PENDING)) {
+            throw new APIException("Your order is still being placed; the cart can be changed once it completes");
+        }
+    }
 
-        // Set the new total and save the cart
-        cart.setTotalPrice(totalPrice);
-        return cartRepository.save(cart);
+    private static CartItem findCartItem(Cart cart, Long productId) {
+        for (CartItem item : cart.getCartItems()) {
+            if (item.getProduct().getProductId().equals(productId)) {
+                return item;
+            }
+        }
+        return null;
     }
 
+    private void removeCartItem(Cart cart, CartItem cartItem) {
+        applyTotalDelta(cart, -lineTotal(cartItem));
+        cart.getCartItems().remove(cartItem);
+        cartItemRepository.delete(cartItem);
+    }
+
+    @RetryOnCartConflict
+    @Transactional
     @Override
     public CartDTO addProductToCart(Long productId, Integer quantity) {
+        ensureNoPendingOrder(authUtil.loggedInEmail());
         Cart cart = createCart();
+        // Serialize adds to this cart; the upsert derives the total delta from the line's previous value
+        cartRepository.findByIdForUpdate(cart.getCartId());
+
+        // Insert or increment the item and adjust the total, both guarded by the stock check
+        int updated = cartItemRepository.upsertCartItem(nextCartItemId(), cart.getCartId(), productId, quantity);
+
+        if (updated == 0) {
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product", "id", productId));
 
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Product", "id", productId));
-
-        CartItem cartItem = cartItemRepository.findCartItemByProductIdAndCartId(cart.getCartId(), productId);
-
-        if (cartItem != null) {
-            // Instead of throwing exception, update existing item
-            logger.info("Product {} already exists in the cart, updating quantity", product.getProductName());
-            cartItem.setQuantity(cartItem.getQuantity() + quantity);
-            cartItem.setProductPrice(product.getSpecialPrice());
-            cartItem.setDiscount(product.getDiscount());
-            cartItemRepository.save(cartItem);
-        } else {
-            // Check product availability
             if (product.getQuantity() == 0) {
                 throw new APIException(product.getProductName() + " is not available");
             }
 
-            if (product.getQuantity() < quantity) {
-                throw new APIException("Please, make an order of the " + product.getProductName()
-                        + " less than or equal to the quantity " + product.getQuantity() + ".");
-            }
+            throw new APIException("Please, make an order of the " + product.getProductName()
+                    + " less than or equal to the quantity " + product.getQuantity() + ".");
+        }
+
+        // The statement bypassed the persistence context, so reload the cart before mapping it
+        entityManager.refresh(cart);
+        reconcilePrices(cart);
+
+        return toCartDTO(cart);
+    }
+
+    // Takes the id from Hibernate's pooled generator, so native inserts never race it for sequence values
+    private Long nextCartItemId() {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(CartItem.class);
+        return (Long) ((BeforeExecutionGenerator) persister.getGenerator()).generate(session, null, null, EventType.INSERT);
+    }
+
+    /**
+     * Builds the cart view with its total computed in memory from the items.
+     * Read-only: neither the cart nor its products are modified.
+     *
+     * @param cart The cart to present
+     * @return The cart view
+     */
+    private CartDTO toCartDTO(Cart cart) {
+        double totalPrice = 0.0;
+        List<ProductDTO> products = new ArrayList<>();
+
+        for (CartItem item : cart.getCartItems()) {
+            ProductDTO productDTO = modelMapper.map(item.getProduct(), ProductDTO.class);
+            // Report the quantity in the cart, not the product stock
+            productDTO.setQuantity(item.getQuantity());
+            products.add(productDTO);
 
-            // Create new cart item
-            CartItem newCartItem = new CartItem();
-            newCartItem.setProduct(product);
-            newCartItem.setCart(cart);
-            newCartItem.setQuantity(quantity);
-            newCartItem.setDiscount(product.getDiscount());
-            newCartItem.setProductPrice(product.getSpecialPrice());
-            cartItemRepository.save(newCartItem);
+            // Stale items are shown at the current price; it is persisted on the next change
+            double unitPrice = isPriceStale(item) ? item.getProduct().getSpecialPrice() : item.getProductPrice();
+            totalPrice += unitPrice * item.getQuantity();
         }
 
-        // Recalculate cart total instead of manually adding
-        cart = recalculateCartTotal(cart);
-
-        // Map to DTO and return
-        CartDTO cartDTO = modelMapper.map(cart, CartDTO.class);
-        List<CartItem> cartItems = cart.getCartItems();
-        Stream<ProductDTO> productStream = cartItems.stream().map(item -> {
-            ProductDTO map = modelMapper.map(item.getProduct(), ProductDTO.class);
-            map.setQuantity(item.getQuantity());
-            return map;
-        });
-        cartDTO.setProducts(productStream.toList());
+        CartDTO cartDTO = new CartDTO();
+        cartDTO.setCartId(cart.getCartId());
+        cartDTO.setTotalPrice(Math.round(totalPrice * 100.0) / 100.0);
+        cartDTO.setProducts(products);
         return cartDTO;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<CartDTO> getAllCarts() {
         List<Cart> carts = cartRepository.findAll();
 
@@ -149,27 +211,12 @@ public class CartServiceImpl implements CartService {
             throw new APIException("No cart found");
         }
 
-        // Check totals for all carts and fix if needed
-        carts.forEach(this::recalculateCartTotal);
-
-        List<CartDTO> cartDTOs = carts.stream().map(cart -> {
-            CartDTO cartDTO = modelMapper.map(cart, CartDTO.class);
-
-            List<ProductDTO> products = cart.getCartItems().stream().map(cartItem -> {
-                ProductDTO productDTO = modelMapper.map(cartItem.getProduct(), ProductDTO.class);
-                productDTO.setQuantity(cartItem.getQuantity());
-                return productDTO;
-            }).toList();
-
-            cartDTO.setProducts(products);
-
-            return cartDTO;
-        }).toList();
-
-        return cartDTOs;
+        return carts.stream().map(this::toCartDTO).toList();
     }
 
+    // Read-only transaction: Hibernate skips dirty checking and never flushes, so polling the cart issues no writes
     @Override
+    @Transactional(readOnly = true)
     public CartDTO getCart(String emailId, Long cartId) {
         Cart cart = cartRepository.findCartByEmailAndCartId(emailId, cartId);
 
@@ -181,29 +228,20 @@ public class CartServiceImpl implements CartService {
             return emptyCart;
         }
 
-        // Ensure cart total is accurate
-        cart = recalculateCartTotal(cart);
-
-        cart.getCartItems().forEach(c -> c.getProduct().setQuantity(c.getQuantity()));
-
-        List<ProductDTO> products = cart.getCartItems().stream()
-                .map(p -> modelMapper.map(p.getProduct(), ProductDTO.class)).toList();
-
-        CartDTO cartDTO = modelMapper.map(cart, CartDTO.class);
-        cartDTO.setProducts(products);
-
-        return cartDTO;
+        return toCartDTO(cart);
     }
 
+    @RetryOnCartConflict
     @Transactional
     @Override
     public CartDTO updateProductQuantityInCart(Long productId, Integer quantity) {
         String emailId = authUtil.loggedInEmail();
-        Cart userCart = cartRepository.findCartByEmail(emailId);
-        Long cartId  = userCart.getCartId();
+        ensureNoPendingOrder(emailId);
+        Cart cart = cartRepository.findCartByEmail(emailId);
 
-        Cart cart = cartRepository.findById(cartId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart", "cartId", cartId));
+        if (cart == null) {
+            throw new ResourceNotFoundException("Cart", "email", emailId);
+        }
 
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
@@ -217,60 +255,47 @@ public class CartServiceImpl implements CartService {
                     + " less than or equal to the quantity " + product.getQuantity() + ".");
         }
 
-        CartItem cartItem = cartItemRepository.findCartItemByProductIdAndCartId(cartId, productId);
+        CartItem cartItem = findCartItem(cart, productId);
 
         if (cartItem == null) {
             throw new APIException("Product " + product.getProductName() + " not available in the cart!!!");
         }
 
+        reconcilePrices(cart);
+
         // Update cart item properties
-        cartItem.setProductPrice(product.getSpecialPrice());
+        double oldLineTotal = lineTotal(cartItem);
         cartItem.setQuantity(cartItem.getQuantity() + quantity);
-        cartItem.setDiscount(product.getDiscount());
-
-        // Save cart item first
         cartItemRepository.save(cartItem);
 
-        // Recalculate cart total instead of manually adding
-        cart = recalculateCartTotal(cart);
-
-        // Map to DTO and return
-        CartDTO cartDTO = modelMapper.map(cart, CartDTO.class);
-        List<CartItem> cartItems = cart.getCartItems();
-        Stream<ProductDTO> productStream = cartItems.stream().map(item -> {
-            ProductDTO prd = modelMapper.map(item.getProduct(), ProductDTO.class);
-            prd.setQuantity(item.getQuantity());
-            return prd;
-        });
-        cartDTO.setProducts(productStream.toList());
-        return cartDTO;
+        applyTotalDelta(cart, lineTotal(cartItem) - oldLineTotal);
+
+        return toCartDTO(cart);
     }
 
+    @RetryOnCartConflict
     @Transactional
     @Override
     public CartDTO updateProductQuantityInCart(Long productId, String operation) {
         String emailId = authUtil.loggedInEmail();
-        Cart userCart = cartRepository.findCartByEmail(emailId);
+        ensureNoPendingOrder(emailId);
+        Cart cart = cartRepository.findCartByEmail(emailId);
 
-        if (userCart == null) {
+        if (cart == null) {
             throw new ResourceNotFoundException("Cart", "email", emailId);
         }
 
-        Long cartId = userCart.getCartId();
-
-        Cart cart = cartRepository.findById(cartId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart", "cartId", cartId));
-
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
 
-        CartItem cartItem = cartItemRepository.findCartItemByProductIdAndCartId(cartId, productId);
+        CartItem cartItem = findCartItem(cart, productId);
 
         if (cartItem == null) {
             throw new APIException("Product " + product.getProductName() + " not available in the cart!!!");
         }
 
-        cartItem.setProductPrice(product.getSpecialPrice());
+        reconcilePrices(cart);
+        double oldLineTotal = lineTotal(cartItem);
 
         // Update quantity based on operation
         if ("increase".equalsIgnoreCase(operation)) {
@@ -286,48 +311,211 @@ public class CartServiceImpl implements CartService {
         } else if ("decrease".equalsIgnoreCase(operation)) {
             if (cartItem.getQuantity() <= 1) {
                 // Remove item if quantity would be 0 or less
-                cartItemRepository.deleteById(cartItem.getCartItemId());
-                cart.getCartItems().remove(cartItem);
-            } else {
-                cartItem.setQuantity(cartItem.getQuantity() - 1);
+                removeCartItem(cart, cartItem);
+                return toCartDTO(cart);
             }
+            cartItem.setQuantity(cartItem.getQuantity() - 1);
         } else if ("delete".equalsIgnoreCase(operation)) {
             // Remove item completely
-            cartItemRepository.deleteById(cartItem.getCartItemId());
-            cart.getCartItems().remove(cartItem);
+            removeCartItem(cart, cartItem);
+            return toCartDTO(cart);
+        }
+
+        cartItemRepository.save(cartItem);
+        applyTotalDelta(cart, lineTotal(cartItem) - oldLineTotal);
+
+        return toCartDTO(cart);
+    }
+
+    // Not retried here: CartMutationCoalescer reschedules a conflicting change itself rather than
+    // sleeping through a backoff on the stripe worker that serves other carts
+    @Transactional
+    @Override
+    public CartDTO applyQuantityChange(Long cartId, Long productId, int delta) {
+        return applyQuantityChanges(cartId, Map.of(productId, delta));
+    }
+
+    @Transactional
+    @Override
+    public CartDTO applyQuantityChanges(Long cartId, Map<Long, Integer> deltas) {
+        Cart cart = cartRepository.findById(cartId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart", "cartId", cartId));
+        ensureNoPendingOrder(cart.getUser().getEmail());
+
+        reconcilePrices(cart);
+
+        for (Map.Entry<Long, Integer> entry : deltas.entrySet()) {
+            applyLineDelta(cart, entry.getKey(), entry.getValue());
+        }
+
+        return toCartDTO(cart);
+    }
+
+    private void applyLineDelta(Cart cart, Long productId, int delta) {
+        CartItem cartItem = findCartItem(cart, productId);
+
+        if (cartItem == null) {
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
+            throw new APIException("Product " + product.getProductName() + " not available in the cart!!!");
+        }
+
+        if (delta == 0) {
+            return;
+        }
+
+        Product product = cartItem.getProduct();
+        double oldLineTotal = lineTotal(cartItem);
+        int quantity = cartItem.getQuantity() + delta;
+
+        if (quantity <= 0) {
+            // Remove item if quantity would be 0 or less
+            removeCartItem(cart, cartItem);
+            return;
         }
 
-        // Save any item changes if the item wasn't deleted
-        if (!"delete".equalsIgnoreCase(operation) && cartItem.getQuantity() > 0) {
-            cartItemRepository.save(cartItem);
+        if (delta > 0) {
+            if (product.getQuantity() == 0) {
+                throw new APIException(product.getProductName() + " is not available");
+            }
+
+            // Rejected as a whole, like a single increase past the stock; the coalescer then replays its clicks one by one
+            if (quantity > product.getQuantity()) {
+                throw new APIException("Cannot add more than available stock (" + product.getQuantity() + ")");
+            }
         }
 
-        // Recalculate cart total
-        cart = recalculateCartTotal(cart);
+        cartItem.setQuantity(quantity);
+        cartItemRepository.save(cartItem);
+
+        applyTotalDelta(cart, lineTotal(cartItem) - oldLineTotal);
+    }
 
-        // If cart is now empty, return a CartDTO with empty products list
+    @RetryOnCartConflict
+    @Transactional
+    @Override
+    public CartDTO applyCartOperations(List<CartOperationDTO> operations) {
+        ensureNoPendingOrder(authUtil.loggedInEmail());
+        Cart cart = createCart();
+
+        // Load every referenced product in one query
+        Set<Long> productIds = operations.stream()
+                .map(CartOperationDTO::getProductId)
+                .collect(Collectors.toSet());
+        Map<Long, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getProductId, Function.identity()));
+
+        // Work out the target quantity of every line first, then touch the entities once
+        Map<Long, CartItem> existingItems = new HashMap<>();
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (CartItem item : cart.getCartItems()) {
+            existingItems.put(item.getProduct().getProductId(), item);
+            quantities.put(item.getProduct().getProductId(), item.getQuantity());
+        }
+
+        for (CartOperationDTO operation : operations) {
+            Long productId = operation.getProductId();
+            Product product = products.get(productId);
+            if (product == null) {
+                throw new ResourceNotFoundException("Product", "productId", productId);
+            }
+
+            int quantity = operation.getQuantity() == null ? 0 : operation.getQuantity();
+
+            switch (operation.getType().toLowerCase()) {
+                case "add" -> {
+                    if (quantity <= 0) {
+                        throw new APIException("Quantity to add must be positive for " + product.getProductName());
+                    }
+                    quantities.merge(productId, quantity, Integer::sum);
+                }
+                case "set" -> {
+                    if (quantity < 0) {
+                        throw new APIException("Quantity cannot be negative for " + product.getProductName());
+                    }
+                    if (quantity == 0) {
+                        quantities.remove(productId);
+                    } else {
+                        quantities.put(productId, quantity);
+                    }
+                }
+                case "remove" -> quantities.remove(productId);
+                default -> throw new APIException("Unknown cart operation: " + operation.getType());
+            }
+        }
+
+        // One stock check per product, against the final quantity
+        for (Long productId : productIds) {
+            Integer quantity = quantities.get(productId);
+            Product product = products.get(productId);
+            if (quantity == null) {
+                continue;
+            }
+
+            if (product.getQuantity() == 0) {
+                throw new APIException(product.getProductName() + " is not available");
+            }
+
+            if (product.getQuantity() < quantity) {
+                throw new APIException("Please, make an order of the " + product.getProductName()
+                        + " less than or equal to the quantity " + product.getQuantity() + ".");
+            }
+        }
+
+        List<CartItem> removed = new ArrayList<>();
+        for (Map.Entry<Long, CartItem> entry : existingItems.entrySet()) {
+            Integer quantity = quantities.get(entry.getKey());
+            if (quantity == null) {
+                removed.add(entry.getValue());
+            } else if (products.containsKey(entry.getKey())) {
+                CartItem item = entry.getValue();
+                Product product = products.get(entry.getKey());
+                item.setQuantity(quantity);
+                stampPrice(item, product);
+            }
+        }
+
+        List<CartItem> added = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            if (!existingItems.containsKey(entry.getKey())) {
+                Product product = products.get(entry.getKey());
+                CartItem item = new CartItem();
+                item.setProduct(product);
+                item.setCart(cart);
+                item.setQuantity(entry.getValue());
+                stampPrice(item, product);
+                added.add(item);
+            }
+        }
+
+        cart.getCartItems().removeAll(removed);
+        cartItemRepository.deleteAll(removed);
+        cartItemRepository.saveAll(added);
+        cart.getCartItems().addAll(added);
+
+        // Untouched lines may still carry an outdated price
+        reconcilePrices(cart);
+
+        // A single recalculation replaces the per-operation deltas
+        double totalPrice = cart.getCartItems().stream().mapToDouble(CartServiceImpl::lineTotal).sum();
+        cart.setTotalPrice(Math.round(totalPrice * 100.0) / 100.0);
+
+        CartDTO cartDTO = toCartDTO(cart);
+
+        // Match the single-item delete path, which never leaves an empty cart behind
         if (cart.getCartItems().isEmpty()) {
-            CartDTO emptyCartDTO = new CartDTO();
-            emptyCartDTO.setCartId(cart.getCartId());
-            emptyCartDTO.setTotalPrice(0.0);
-            emptyCartDTO.setProducts(new ArrayList<>());
-            return emptyCartDTO;
+            logger.info("Deleting empty cart with ID: {}", cart.getCartId());
+            // Unlink it from the user first, or the user's cascade would persist it again on flush
+            User user = cart.getUser();
+            if (user != null) {
+                user.setCart(null);
+            }
+            cartRepository.delete(cart);
         }
 
-        // Map to DTO and return
-        CartDTO cartDTO = modelMapper.map(cart, CartDTO.class);
-        List<ProductDTO> products = cart.getCartItems().stream().map(item -> {
-            ProductDTO prd = modelMapper.map(item.getProduct(), ProductDTO.class);
-            prd.setQuantity(item.getQuantity());
-            return prd;
-        }).toList();
-        cartDTO.setProducts(products);
         return cartDTO;
     }
 
-    // Rest of the methods remain the same but should use recalculateCartTotal
-    // instead of manual price calculations
-
     private Cart createCart() {
         Cart userCart = cartRepository.findCartByEmail(authUtil.loggedInEmail());
         if(userCart != null) {
@@ -337,19 +525,21 @@ public class CartServiceImpl implements CartService {
         Cart cart = new Cart();
         cart.setTotalPrice(0.0);
         cart.setUser(authUtil.loggedInUser());
-        Cart newCart = cartRepository.save(cart);
+        // Flush so native statements against this cart can see it
+        Cart newCart = cartRepository.saveAndFlush(cart);
 
         return newCart;
     }
 
+    @RetryOnCartConflict
     @Transactional
     @Override
     public String deleteProductFromCart(Long cartId, Long productId) {
         Cart cart = cartRepository.findById(cartId)
                 .orElseThrow(() -> new ResourceNotFoundException("Cart", "cartId", cartId));
+        ensureNoPendingOrder(cart.getUser().getEmail());
 
-        // Get product information before deleting for the return message
-        CartItem cartItem = cartItemRepository.findCartItemByProductIdAndCartId(cartId, productId);
+        CartItem cartItem = findCartItem(cart, productId);
 
         if (cartItem == null) {
             throw new ResourceNotFoundException("Product", "productId", productId);
@@ -357,30 +547,10 @@ public class CartServiceImpl implements CartService {
 
         String productName = cartItem.getProduct().getProductName();
 
-        // Remove the cart item
-        cartItemRepository.deleteCartItemByProductIdAndCartId(cartId, productId);
-
-        // Force a flush to ensure changes are written to the database
-        entityManager.flush();
-
-        // IMPORTANT: Don't use the cart.getCartItems() collection after deletion
-        // Instead, re-fetch the cart from the database to get fresh state
-        cart = cartRepository.findById(cartId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart", "cartId", cartId));
-
-        // Recalculate cart total and update in database
-        double totalPrice = 0.0;
-        if (cart.getCartItems() != null && !cart.getCartItems().isEmpty()) {
-            totalPrice = cart.getCartItems().stream()
-                    .mapToDouble(item -> item.getProductPrice() * item.getQuantity())
-                    .sum();
-        }
-
-        cart.setTotalPrice(totalPrice);
-        cartRepository.save(cart);
+        reconcilePrices(cart);
+        removeCartItem(cart, cartItem);
 
-        // Check if cart is empty based on count from database
-        Long remainingItems = cartItemRepository.countByCartId(cartId);
+        int remainingItems = cart.getCartItems().size();
         logger.info("Remaining items in cart after deletion: {}", remainingItems);
 
         if (remainingItems == 0) {
@@ -392,9 +562,6 @@ public class CartServiceImpl implements CartService {
         return "Product " + productName + " removed from the cart";
     }
 
-    // The deleteEmptyCart and updateProductInCarts methods should also use recalculateCartTotal
-    // for consistent cart pricing
-
     @Transactional
     @Override
     public String deleteEmptyCart(String email) {
@@ -436,25 +603,20 @@ public class CartServiceImpl implements CartService {
         }
     }
 
+    /**
+     * Rewrites every cart total that has drifted from the sum of its items.
+     * Runs periodically and can be triggered by an admin.
+     *
+     * @return The number of carts whose total was corrected
+     */
     @Override
-    public void updateProductInCarts(Long cartId, Long productId) {
-        Cart cart = cartRepository.findById(cartId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart", "cartId", cartId));
-
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
-
-        CartItem cartItem = cartItemRepository.findCartItemByProductIdAndCartId(cartId, productId);
-
-        if (cartItem == null) {
-            throw new APIException("Product " + product.getProductName() + " not available in the cart!!!");
+    @Scheduled(fixedDelayString = "${spring.app.cartReconcile.intervalMs:3600000}",
+            initialDelayString = "${spring.app.cartReconcile.intervalMs:3600000}")
+    public int reconcileCartTotals() {
+        int corrected = cartRepository.reconcileTotals();
+        if (corrected > 0) {
+            logger.warn("Corrected drifted totals on {} carts", corrected);
         }
-
-        // Update cart item price
-        cartItem.setProductPrice(product.getSpecialPrice());
-        cartItemRepository.save(cartItem);
-
-        // Recalculate cart total
-        recalculateCartTotal(cart);
+        return corrected;
     }
-}
\ No newline at end of file
+}
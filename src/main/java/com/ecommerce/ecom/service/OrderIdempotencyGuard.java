@@ -0,0 +1,139 @@
+package com.ecommerce.ecom.service;
+
+import com.ecommerce.ecom.exceptions.ServiceBusyException;
+import com.ecommerce.ecom.payload.OrderDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Makes order placement idempotent per user and idempotency key.
+ * <p>
+ * The ids of recently placed orders are kept in an in-memory LRU; older ones are found through the
+ * unique (email, idempotency_key) column on orders. Either way a repeat gets the order as it is now,
+ * so a retried async checkout sees its pending order move on rather than a copy frozen at Pending.
+ * A duplicate that arrives while the first request is still running waits for its result instead
+ * of placing a second order.
+ */
+@Component
+public class OrderIdempotencyGuard {
+    private static final Logger logger = LoggerFactory.getLogger(OrderIdempotencyGuard.class);
+
+    @Autowired
+    private OrderService orderService;
+
+    private final Cache<String, Long> placedOrderIds;
+
+    private final Map<String, CompletableFuture<OrderDTO>> inFlight = new ConcurrentHashMap<>();
+
+    private final long waitTimeoutMs;
+
+    public OrderIdempotencyGuard(@Value("${spring.app.orderIdempotency.cacheSize:10000}") long cacheSize,
+                                 @Value("${spring.app.orderIdempotency.ttlMinutes:1440}") long ttlMinutes,
+                                 @Value("${spring.app.orderIdempotency.waitTimeoutMs:30000}") long waitTimeoutMs) {
+        this.placedOrderIds = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build();
+        this.waitTimeoutMs = waitTimeoutMs;
+    }
+
+    /**
+     * Places the order once for the given key and returns the same order for every repeat.
+     *
+     * @param email The customer placing the order
+     * @param idempotencyKey The client key; without one the order is always placed
+     * @param placeOrder Places the order, tagging it with the key
+     * @return The order created by the first request with this key
+     */
+    public OrderDTO placeOnce(String email, String idempotencyKey, Supplier<OrderDTO> placeOrder) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return placeOrder.get();
+        }
+
+        String cacheKey = email + '\n' + idempotencyKey;
+        OrderDTO placed = findPlacedOrder(cacheKey);
+        if (placed != null) {
+            return placed;
+        }
+
+        CompletableFuture<OrderDTO> result = new CompletableFuture<>();
+        CompletableFuture<OrderDTO> running = inFlight.putIfAbsent(cacheKey, result);
+        if (running != null) {
+            logger.info("Waiting for in-flight order with the same idempotency key for {}", email);
+            return await(running);
+        }
+
+        try {
+            OrderDTO orderDTO = findPlacedOrder(cacheKey);
+            if (orderDTO == null) {
+                orderDTO = orderService.findOrderByIdempotencyKey(email, idempotencyKey)
+                        .orElseGet(() -> placeOrUseWinner(email, idempotencyKey, placeOrder));
+            }
+            placedOrderIds.put(cacheKey, orderDTO.getOrderId());
+            result.complete(orderDTO);
+            return orderDTO;
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, result);
+        }
+    }
+
+    // Read by id so the status is current; a pending order that could not be queued is deleted, and
+    // its key is then free to place the order again
+    private OrderDTO findPlacedOrder(String cacheKey) {
+        Long orderId = placedOrderIds.getIfPresent(cacheKey);
+        if (orderId == null) {
+            return null;
+        }
+        Optional<OrderDTO> order = orderService.findOrderById(orderId);
+        if (order.isEmpty()) {
+            placedOrderIds.invalidate(cacheKey);
+            return null;
+        }
+        return order.get();
+    }
+
+    // Another instance may insert the same key first; the unique constraint rejects ours and we return theirs
+    private OrderDTO placeOrUseWinner(String email, String idempotencyKey, Supplier<OrderDTO> placeOrder) {
+        try {
+            return placeOrder.get();
+        } catch (DataIntegrityViolationException e) {
+            return orderService.findOrderByIdempotencyKey(email, idempotencyKey)
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    private OrderDTO await(CompletableFuture<OrderDTO> running) {
+        try {
+            return running.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ServiceBusyException("Order is still being processed, please try again shortly");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Order placement was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
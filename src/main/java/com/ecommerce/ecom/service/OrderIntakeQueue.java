@@ -0,0 +1,177 @@
+package com.ecommerce.ecom.service;
+
+import com.ecommerce.ecom.exceptions.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Completes pending orders on a small worker pool instead of the request threads.
+ * <p>
+ * The request persists a pending order and hands its id here; a worker then takes the stock,
+ * writes the items and clears the cart. The queue is bounded: when it is full the pending order
+ * is discarded and the request fails fast with {@link ServiceBusyException}, so a sale-event burst
+ * cannot pile up unbounded work.
+ * <p>
+ * On shutdown the queue is drained rather than dropped. Orders that still end up stuck in
+ * Pending, e.g. after a crash, are picked up by a periodic sweep that queues them again;
+ * completing an order re-checks its status under a row lock, so a repeat is harmless.
+ */
+@Component
+public class OrderIntakeQueue implements DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(OrderIntakeQueue.class);
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ThreadPoolExecutor executor;
+
+    private final long shutdownTimeoutMs;
+
+    private final long staleAfterMs;
+
+    private Timer waitTime;
+
+    private Timer processingTime;
+
+    private Counter requeued;
+
+    public OrderIntakeQueue(@Value("${spring.app.orderIntake.threads:4}") int threads,
+                            @Value("${spring.app.orderIntake.queueCapacity:500}") int queueCapacity,
+                            @Value("${spring.app.orderIntake.shutdownTimeoutMs:30000}") long shutdownTimeoutMs,
+                            @Value("${spring.app.orderIntake.staleAfterMs:600000}") long staleAfterMs) {
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.staleAfterMs = staleAfterMs;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "order-intake-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("orders.intake.queue.depth", executor, e -> e.getQueue().size())
+                .description("Pending orders waiting for a worker")
+                .register(meterRegistry);
+        waitTime = Timer.builder("orders.intake.wait")
+                .description("Time a pending order spent queued before a worker picked it up")
+                .register(meterRegistry);
+        processingTime = Timer.builder("orders.intake.processing")
+                .description("Time taken to complete a pending order")
+                .register(meterRegistry);
+        requeued = Counter.builder("orders.intake.requeued")
+                .description("Orders found stuck in Pending and queued again")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues a persisted pending order for completion.
+     *
+     * @param orderId The pending order to complete
+     * @throws ServiceBusyException if the queue is full; the pending order is discarded
+     */
+    public void submit(Long orderId) {
+        if (!enqueue(orderId)) {
+            logger.warn("Order intake queue is full, rejecting order {}", orderId);
+            orderService.discardPendingOrder(orderId);
+            throw new ServiceBusyException("Server is busy, please try again shortly");
+        }
+    }
+
+    /**
+     * Queues orders that have been Pending for longer than the stale cutoff. The first run, one
+     * interval after startup, picks up orders left behind by a previous instance.
+     *
+     * @return The number of orders queued again
+     */
+    @Scheduled(fixedDelayString = "${spring.app.orderIntake.sweepIntervalMs:60000}",
+            initialDelayString = "${spring.app.orderIntake.sweepIntervalMs:60000}")
+    public int requeueStalePendingOrders() {
+        List<Long> staleOrderIds = orderService.findStalePendingOrderIds(
+                LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(staleAfterMs)));
+
+        int queued = 0;
+        for (Long orderId : staleOrderIds) {
+            // Unlike a new order, a stale one is kept when the queue is full; the next sweep tries again
+            if (!enqueue(orderId)) {
+                break;
+            }
+            queued++;
+        }
+
+        if (queued > 0) {
+            requeued.increment(queued);
+            logger.warn("Queued {} of {} orders stuck in Pending", queued, staleOrderIds.size());
+        }
+        return queued;
+    }
+
+    private boolean enqueue(Long orderId) {
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                waitTime.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                processingTime.record(() -> complete(orderId));
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private void complete(Long orderId) {
+        try {
+            orderService.completePendingOrder(orderId);
+        } catch (RuntimeException e) {
+            // The completion transaction rolled back; record the outcome so polling clients see it
+            logger.warn("Could not complete order {}: {}", orderId, e.getMessage());
+            try {
+                orderService.markOrderFailed(orderId, e.getMessage());
+            } catch (RuntimeException markFailure) {
+                logger.error("Could not mark order {} as failed", orderId, markFailure);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // Let queued orders finish instead of interrupting them mid-transaction
+        executor.shutdown();
+        try {
+            if (executor.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<Runnable> abandoned = executor.shutdownNow();
+        logger.warn("Order intake did not drain within {} ms; {} queued orders stay Pending until the next sweep",
+                shutdownTimeoutMs, abandoned.size());
+    }
+}
@@ -0,0 +1,8 @@
+package com.ecommerce.ecom.service;
+
+/**
+ * Published when an order's items start or stop counting towards seller sales:
+ * once when the order is placed and once if it is later canceled.
+ */
+public record OrderSalesEvent(Long orderId, String customerEmail, boolean canceled) {
+}
@@ -1,8 +1,31 @@
 package com.ecommerce.ecom.service;
 
+import com.ecommerce.ecom.model.User;
 import com.ecommerce.ecom.payload.OrderDTO;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
 public interface OrderService {
 
-    OrderDTO placeOrder(String email, Long addressId, String paymentMethod, String pgName, String pgPaymentId, String pgStatus, String pgResponseMessage);
+    OrderDTO placeOrder(String email, Long addressId, String paymentMethod, String pgName, String pgPaymentId, String pgStatus, String pgResponseMessage, String idempotencyKey);
+
+    OrderDTO createPendingOrder(String email, Long addressId, String paymentMethod, String pgName, String pgPaymentId, String pgStatus, String pgResponseMessage, String idempotencyKey);
+
+    void completePendingOrder(Long orderId);
+
+    void markOrderFailed(Long orderId, String reason);
+
+    void discardPendingOrder(Long orderId);
+
+    List<Long> findStalePendingOrderIds(LocalDateTime createdBefore);
+
+    Optional<OrderDTO> findOrderById(Long orderId);
+
+    Optional<OrderDTO> findOrderByIdempotencyKey(String email, String idempotencyKey);
+
+    void cancelOrder(Long orderId, String email);
+
+    void updateOrderStatusForSeller(Long orderId, String status, User seller);
 }
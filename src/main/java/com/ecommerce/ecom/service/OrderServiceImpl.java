@@ -1,5 +1,6 @@
 package com.ecommerce.ecom.service;
 
+import com.ecommerce.ecom.config.AppConstants;
 import com.ecommerce.ecom.exceptions.APIException;
 import com.ecommerce.ecom.exceptions.ResourceNotFoundException;
 import com.ecommerce.ecom.model.*;
@@ -8,18 +9,27 @@ import com.ecommerce.ecom.payload.OrderItemDTO;
 import com.ecommerce.ecom.payload.PaymentDTO;
 import com.ecommerce.ecom.payload.ProductDTO;
 import com.ecommerce.ecom.repositories.*;
-import jakarta.transaction.Transactional;
 import org.modelmapper.ModelMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
 public class OrderServiceImpl implements OrderService {
+    private static final Logger logger = LoggerFactory.getLogger(OrderServiceImpl.class);
 
     @Autowired
     private AddressRepository addressRepository;
@@ -27,14 +37,11 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private OrderRepository orderRepository;
 
-    @Autowired
-    private OrderItemRepository orderItemRepository;
-
     @Autowired
     private CartRepository cartRepository;
 
     @Autowired
-    private PaymentRepository paymentRepository;
+    private CartItemRepository cartItemRepository;
 
     @Autowired
     private CartService cartService;
@@ -45,97 +52,273 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private ModelMapper modelMapper;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Override
     @Transactional
-    public OrderDTO placeOrder(String email, Long addressId, String paymentMethod, String pgName, String pgPaymentId, String pgStatus, String pgResponseMessage) {
-        Cart cart = cartRepository.findCartByEmail(email);
+    public OrderDTO placeOrder(String email, Long addressId, String paymentMethod, String pgName, String pgPaymentId, String pgStatus, String pgResponseMessage, String idempotencyKey) {
+        Cart cart = loadCheckoutCart(email);
 
-        if (cart == null) {
-            throw new ResourceNotFoundException("Cart", "email", email);
-        }
+        Address address = addressRepository.findById(addressId)
+                .orElseThrow(() -> new ResourceNotFoundException("Address", "addressId", addressId));
+
+        Order order = newOrder(email, address, paymentMethod, pgName, pgPaymentId, pgStatus, pgResponseMessage,
+                idempotencyKey, AppConstants.ORDER_STATUS_PLACED);
+
+        fulfilOrder(order, cart);
+
+        // Payment and order items are cascaded; with JDBC batching the items go out as one batch
+        Order savedOrder = orderRepository.save(order);
+        eventPublisher.publishEvent(new OrderSalesEvent(savedOrder.getOrderId(), email, false));
+
+        return toOrderDTO(savedOrder);
+    }
+
+    @Override
+    @Transactional
+    public OrderDTO createPendingOrder(String email, Long addressId, String paymentMethod, String pgName, String pgPaymentId, String pgStatus, String pgResponseMessage, String idempotencyKey) {
+        Cart cart = loadCheckoutCart(email);
 
         Address address = addressRepository.findById(addressId)
                 .orElseThrow(() -> new ResourceNotFoundException("Address", "addressId", addressId));
 
+        Order order = newOrder(email, address, paymentMethod, pgName, pgPaymentId, pgStatus, pgResponseMessage,
+                idempotencyKey, AppConstants.ORDER_STATUS_PENDING);
+        // Provisional; the final amount is taken when the order is completed
+        order.setTotalAmount(cart.getTotalPrice());
+
+        return toOrderDTO(orderRepository.save(order));
+    }
+
+    @Override
+    @Transactional
+    public void completePendingOrder(Long orderId) {
+        Order order = orderRepository.findByIdForUpdate(orderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Order", "orderId", orderId));
+
+        // Canceled or already handled while it was queued
+        if (!AppConstants.ORDER_STATUS_PENDING.equals(order.getOrderStatus())) {
+            return;
+        }
+
+        // Cart changes are rejected while the order is pending; the lock covers any already in flight
+        Cart cart = checkoutCart(order.getEmail(), cartRepository.findCartByEmailForUpdate(order.getEmail()));
+        fulfilOrder(order, cart);
+        order.setOrderStatus(AppConstants.ORDER_STATUS_PLACED);
+        orderRepository.save(order);
+        eventPublisher.publishEvent(new OrderSalesEvent(orderId, order.getEmail(), false));
+    }
+
+    @Override
+    @Transactional
+    public void markOrderFailed(Long orderId, String reason) {
+        Order order = orderRepository.findByIdForUpdate(orderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Order", "orderId", orderId));
+
+        if (AppConstants.ORDER_STATUS_PENDING.equals(order.getOrderStatus())) {
+            logger.warn("Pending order {} failed: {}", orderId, reason);
+            order.setOrderStatus(AppConstants.ORDER_STATUS_FAILED);
+            orderRepository.save(order);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void discardPendingOrder(Long orderId) {
+        orderRepository.findById(orderId)
+                .filter(order -> AppConstants.ORDER_STATUS_PENDING.equals(order.getOrderStatus()))
+                .ifPresent(orderRepository::delete);
+    }
+
+    /**
+     * Cancels one of the customer's own orders if it has not shipped yet. The order row is locked so
+     * an intake worker cannot complete the same pending order between the check and the update.
+     */
+    @Override
+    @Transactional
+    public void cancelOrder(Long orderId, String email) {
+        Order order = orderRepository.findByIdForUpdate(orderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Order", "id", orderId));
+
+        if (!order.getEmail().equals(email)) {
+            throw new AccessDeniedException("You are not authorized to cancel this order");
+        }
+
+        String currentStatus = order.getOrderStatus().toLowerCase();
+        if (currentStatus.contains("deliver") || currentStatus.contains("complet") ||
+                currentStatus.contains("ship") || currentStatus.contains("transit") ||
+                currentStatus.contains("cancel")) {
+            throw new APIException("Order cannot be canceled in its current status");
+        }
+
+        order.setOrderStatus(AppConstants.ORDER_STATUS_CANCELED);
+        orderRepository.save(order);
+
+        // Applied to seller_stats after commit; a failure there is corrected by the next rebuild
+        eventPublisher.publishEvent(new OrderSalesEvent(orderId, email, true));
+    }
+
+    /**
+     * Changes the status of an order holding the seller's products. Sellers may only mark it shipped;
+     * admins may set any status. The order row is locked so its status cannot change between the
+     * check and the update, and a cancellation's stats event is published only if this commits.
+     */
+    @Override
+    @Transactional
+    public void updateOrderStatusForSeller(Long orderId, String status, User seller) {
+        Order order = orderRepository.findByIdForUpdate(orderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Order", "id", orderId));
+
+        Set<Long> productIds = productRepository.findByUser(seller).stream()
+                .map(Product::getProductId)
+                .collect(Collectors.toSet());
+        boolean hasSellerProducts = order.getOrderItems().stream()
+                .anyMatch(item -> productIds.contains(item.getProduct().getProductId()));
+        if (!hasSellerProducts) {
+            throw new AccessDeniedException("You don't have access to this order");
+        }
+
+        boolean admin = seller.getRoles().stream()
+                .anyMatch(role -> role.getRoleName() == AppRole.ROLE_ADMIN);
+        if (!status.equalsIgnoreCase("Shipped") && !admin) {
+            throw new APIException("Sellers can only update order status to 'Shipped'");
+        }
+
+        String currentStatus = order.getOrderStatus().toLowerCase();
+        if (currentStatus.contains("deliver") || currentStatus.contains("complet") ||
+                currentStatus.contains("cancel")) {
+            throw new APIException("Cannot update order in its current status");
+        }
+
+        order.setOrderStatus(status);
+        orderRepository.save(order);
+
+        if (status.toLowerCase().contains("cancel")) {
+            // Applied to seller_stats after commit; a failure there is corrected by the next rebuild
+            eventPublisher.publishEvent(new OrderSalesEvent(order.getOrderId(), order.getEmail(), true));
+        }
+    }
+
+    @Override
+    public List<Long> findStalePendingOrderIds(LocalDateTime createdBefore) {
+        return orderRepository.findOrderIdsByStatusCreatedBefore(AppConstants.ORDER_STATUS_PENDING, createdBefore);
+    }
+
+    // The cart is locked before the check, so an order placed concurrently for the same cart is
+    // either seen as pending here or finds the cart already checked out
+    private Cart loadCheckoutCart(String email) {
+        Cart cart = cartRepository.findCartByEmailForUpdate(email);
+        if (orderRepository.existsByEmailAndOrderStatus(email, AppConstants.ORDER_STATUS_PENDING)) {
+            throw new APIException("An earlier order is still being placed; try again once it completes");
+        }
+        return checkoutCart(email, cart);
+    }
+
+    private Cart checkoutCart(String email, Cart cart) {
+        if (cart == null) {
+            throw new ResourceNotFoundException("Cart", "email", email);
+        }
+
         if (cart.getCartItems().isEmpty()) {
             throw new APIException("Cart is empty.");
         }
 
+        return cart;
+    }
+
+    private Order newOrder(String email, Address address, String paymentMethod, String pgName, String pgPaymentId,
+                           String pgStatus, String pgResponseMessage, String idempotencyKey, String orderStatus) {
         // Create Order
         Order order = new Order();
         order.setEmail(email);
         order.setOrderDate(LocalDate.now());
-        order.setTotalAmount(cart.getTotalPrice());
-        order.setOrderStatus("Order Placed.");
+        order.setCreatedAt(LocalDateTime.now());
+        order.setOrderStatus(orderStatus);
         order.setAddress(address);
+        order.setIdempotencyKey(idempotencyKey);
 
         // Create Payment
         Payment payment = new Payment(paymentMethod, pgPaymentId, pgStatus, pgResponseMessage, pgName);
         payment.setOrder(order);
-        payment = paymentRepository.save(payment);
         order.setPayment(payment);
 
-        Order savedOrder = orderRepository.save(order);
+        return order;
+    }
 
-        // Convert Cart Items to Order Items
-        List<OrderItem> orderItems = new ArrayList<>();
+    /**
+     * Moves the cart into the order: items, final total, stock decrement and cart clearing.
+     * Throws if any product is out of stock, rolling back the surrounding transaction.
+     */
+    private void fulfilOrder(Order order, Cart cart) {
+        // Charge current prices for any items whose product was repriced since they were added
+        cartService.reconcilePrices(cart);
+        order.setTotalAmount(cart.getTotalPrice());
 
-        // IMPORTANT: Create a copy of cart items to avoid ConcurrentModificationException
-        List<CartItem> cartItemsCopy = new ArrayList<>(cart.getCartItems());
+        // Convert Cart Items to Order Items; stock is decremented per product in id order so
+        // concurrent checkouts lock rows in the same order
+        Map<Long, Integer> quantitiesByProductId = new TreeMap<>();
 
-        for (CartItem cartItem : cartItemsCopy) {
+        for (CartItem cartItem : cart.getCartItems()) {
             Product product = cartItem.getProduct();
             int orderedQuantity = cartItem.getQuantity();
 
-            // Ensure sufficient stock
+            // Fail fast on stock we already know is short; the decrement below is the authoritative check
             if (product.getQuantity() < orderedQuantity) {
                 throw new APIException("Not enough stock available for product: " + product.getProductName());
             }
 
-            // Reduce stock quantity
-            product.setQuantity(product.getQuantity() - orderedQuantity);
-
-            productRepository.save(product);
+            quantitiesByProductId.merge(product.getProductId(), orderedQuantity, Integer::sum);
 
             OrderItem orderItem = new OrderItem();
             orderItem.setProduct(product);
             orderItem.setQuantity(orderedQuantity);
             orderItem.setDiscount(cartItem.getDiscount());
             orderItem.setOrderedProductPrice(cartItem.getProductPrice());
-            orderItem.setOrder(savedOrder);
-            orderItems.add(orderItem);
+            orderItem.setOrder(order);
+            order.getOrderItems().add(orderItem);
         }
 
-        orderItemRepository.saveAll(orderItems);
-
-        // Clear cart after order placement - FIXED to avoid ConcurrentModificationException
-        // Method 1: Store product IDs first, then delete
-        List<Long> productIdsToRemove = cartItemsCopy.stream()
-                .map(item -> item.getProduct().getProductId())
-                .collect(Collectors.toList());
+        // A line fails if a concurrent checkout took the stock first; throwing rolls the whole order back
+        List<Long> outOfStock = productRepository.decrementStock(quantitiesByProductId);
+        if (!outOfStock.isEmpty()) {
+            String productNames = cart.getCartItems().stream()
+                    .map(CartItem::getProduct)
+                    .filter(product -> outOfStock.contains(product.getProductId()))
+                    .map(Product::getProductName)
+                    .collect(Collectors.joining(", "));
+            throw new APIException("Not enough stock available for product: " + productNames);
+        }
 
-        // Then delete each product using the stored IDs
-        for (Long productId : productIdsToRemove) {
-            cartService.deleteProductFromCart(cart.getCartId(), productId);
+        // Clear the cart with one delete instead of removing its products one by one
+        cartItemRepository.deleteByCartId(cart.getCartId());
+        cart.getCartItems().clear();
+        if (cart.getUser() != null) {
+            cart.getUser().setCart(null);
         }
+        cartRepository.delete(cart);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<OrderDTO> findOrderById(Long orderId) {
+        return orderRepository.findById(orderId).map(this::toOrderDTO);
+    }
 
-        // Method 2 (Alternative): Clear cart items directly using repository
-        // This is more efficient if you don't need the deleteProductFromCart logic
-    /*
-    cartItemRepository.deleteAllInBatch(cart.getCartItems());
-    cart.getCartItems().clear();
-    cart.setTotalPrice(0.0);
-    cartRepository.save(cart);
-    */
+    @Override
+    @Transactional
+    public Optional<OrderDTO> findOrderByIdempotencyKey(String email, String idempotencyKey) {
+        return orderRepository.findByEmailAndIdempotencyKey(email, idempotencyKey).map(this::toOrderDTO);
+    }
 
-        // Convert Order to DTO
-        OrderDTO orderDTO = modelMapper.map(savedOrder, OrderDTO.class);
+    private OrderDTO toOrderDTO(Order order) {
+        OrderDTO orderDTO = modelMapper.map(order, OrderDTO.class);
 
-        if (savedOrder.getPayment() != null) {
-            orderDTO.setPaymentDTO(modelMapper.map(savedOrder.getPayment(), PaymentDTO.class));
+        if (order.getPayment() != null) {
+            orderDTO.setPaymentDTO(modelMapper.map(order.getPayment(), PaymentDTO.class));
         }
 
-        orderItems.forEach(orderItem -> {
+        order.getOrderItems().forEach(orderItem -> {
             OrderItemDTO itemDTO = modelMapper.map(orderItem, OrderItemDTO.class);
             // Explicitly map the product
             if (orderItem.getProduct() != null) {
@@ -144,7 +327,7 @@ public class OrderServiceImpl implements OrderService {
             orderDTO.getOrderItemDTOs().add(itemDTO);
         });
 
-        orderDTO.setAddressId(addressId);
+        orderDTO.setAddressId(order.getAddress().getAddressId());
 
         return orderDTO;
     }
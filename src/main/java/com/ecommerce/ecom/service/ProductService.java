@@ -5,6 +5,7 @@ import com.ecommerce.ecom.payload.ProductResponse;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.List;
 
 public interface ProductService {
     ProductDTO addProduct(ProductDTO productDTO, Long categoryId);
@@ -17,6 +18,8 @@ public interface ProductService {
 
     ProductDTO deleteProduct(Long productId);
 
+    List<ProductDTO> deleteProducts(List<Long> productIds);
+
     ProductDTO updateProduct(ProductDTO productDTO, Long productId);
 
     ProductDTO updateProductImage(Long productId, MultipartFile image) throws IOException;
@@ -3,10 +3,9 @@ package com.ecommerce.ecom.service;
 import com.ecommerce.ecom.exceptions.APIException;
 import com.ecommerce.ecom.exceptions.ResourceNotFoundException;
 import com.ecommerce.ecom.model.*;
-import com.ecommerce.ecom.payload.CartDTO;
 import com.ecommerce.ecom.payload.ProductDTO;
 import com.ecommerce.ecom.payload.ProductResponse;
-import com.ecommerce.ecom.repositories.CartRepository;
+import com.ecommerce.ecom.repositories.CartItemRepository;
 import com.ecommerce.ecom.repositories.CategoryRepository;
 import com.ecommerce.ecom.repositories.OrderItemRepository;
 import com.ecommerce.ecom.repositories.ProductRepository;
@@ -14,6 +13,7 @@ import com.ecommerce.ecom.util.AuthUtil;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -21,10 +21,15 @@ import org.springframework.data.domain.Sort;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service("productService")
 public class ProductServiceImpl implements ProductService {
@@ -36,10 +41,7 @@ public class ProductServiceImpl implements ProductService {
     private CategoryRepository categoryRepository;
 
     @Autowired
-    private CartRepository cartRepository;
-
-    @Autowired
-    private CartService cartService;
+    private CartItemRepository cartItemRepository;
 
     @Autowired
     private ModelMapper modelMapper;
@@ -53,6 +55,9 @@ public class ProductServiceImpl implements ProductService {
     @Autowired
     private OrderItemRepository orderItemRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Value("${project.image}")
     private String path;
 
@@ -84,6 +89,7 @@ public class ProductServiceImpl implements ProductService {
             double specialPrice = product.getPrice() - (product.getPrice() * product.getDiscount() / 100);
             product.setSpecialPrice(specialPrice);
             Product productDB = productRepository.save(product);
+            eventPublisher.publishEvent(new SellerProductsChangedEvent(Set.of(currentUser.getUserId())));
             return modelMapper.map(productDB, ProductDTO.class);
         } else {
             throw new APIException("Product already exists in the category");
@@ -96,13 +102,10 @@ public class ProductServiceImpl implements ProductService {
                 ? Sort.by(sortBy).ascending()
                 : Sort.by(sortBy).descending();
         Pageable pageable = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
-        Page<Product> productPage = productRepository.findAll(pageable);
+        Page<ProductDTO> productPage = productRepository.findAllProductDTOs(pageable);
 
-        List<Product> products = productPage.getContent();
-        List<ProductDTO> productDTOs = products.stream()
-                .map(product -> modelMapper.map(product, ProductDTO.class)).toList();
         ProductResponse productResponse = new ProductResponse();
-        productResponse.setContent(productDTOs);
+        productResponse.setContent(productPage.getContent());
         productResponse.setPageNumber(productPage.getNumber());
         productResponse.setPageSize(productPage.getSize());
         productResponse.setTotalElements(productPage.getTotalElements());
@@ -113,19 +116,17 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public ProductResponse getProductsByCategory(Long categoryId, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
-        Category category = categoryRepository.findById(categoryId)
-                .orElseThrow(() -> new ResourceNotFoundException("Category", "categoryId", categoryId));
+        if (!categoryRepository.existsById(categoryId)) {
+            throw new ResourceNotFoundException("Category", "categoryId", categoryId);
+        }
 
         Sort sortByAndOrder = sortOrder.equalsIgnoreCase("asc")
                 ? Sort.by(sortBy).ascending()
                 : Sort.by(sortBy).descending();
         Pageable pageable = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
-        Page<Product> productPage = productRepository.findByCategoryOrderByPriceAsc(category, pageable);
-        List<Product> products = productPage.getContent();
-        List<ProductDTO> productDTOs = products.stream()
-                .map(product -> modelMapper.map(product, ProductDTO.class)).toList();
+        Page<ProductDTO> productPage = productRepository.findProductDTOsByCategoryId(categoryId, pageable);
         ProductResponse productResponse = new ProductResponse();
-        productResponse.setContent(productDTOs);
+        productResponse.setContent(productPage.getContent());
         productResponse.setPageNumber(productPage.getNumber());
         productResponse.setPageSize(productPage.getSize());
         productResponse.setTotalElements(productPage.getTotalElements());
@@ -140,12 +141,9 @@ public class ProductServiceImpl implements ProductService {
                 ? Sort.by(sortBy).ascending()
                 : Sort.by(sortBy).descending();
         Pageable pageable = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
-        Page<Product> productPage = productRepository.findByProductNameLikeIgnoreCase('%' + keyWord + '%', pageable);
-        List<Product> products = productPage.getContent();
-        List<ProductDTO> productDTOs = products.stream()
-                .map(product -> modelMapper.map(product, ProductDTO.class)).toList();
+        Page<ProductDTO> productPage = productRepository.findProductDTOsByNameLike('%' + keyWord + '%', pageable);
         ProductResponse productResponse = new ProductResponse();
-        productResponse.setContent(productDTOs);
+        productResponse.setContent(productPage.getContent());
         productResponse.setPageNumber(productPage.getNumber());
         productResponse.setPageSize(productPage.getSize());
         productResponse.setTotalElements(productPage.getTotalElements());
@@ -155,25 +153,63 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
+    @Transactional
     public ProductDTO deleteProduct(Long productId) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
+        return deleteProducts(List.of(productId)).get(0);
+    }
 
-        // Check if current user can delete this product
-        if (!canCurrentUserDeleteProduct(productId)) {
-            throw new APIException("You are not authorized to delete this product");
+    /**
+     * Deletes products and their cart lines in one transaction.
+     * Cart lines, cart totals and carts left empty are handled in a fixed number of statements,
+     * so the cost does not grow with the number of carts holding the products.
+     */
+    @Override
+    @Transactional
+    public List<ProductDTO> deleteProducts(List<Long> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            throw new APIException("No products given to delete");
+        }
+
+        Set<Long> ids = new LinkedHashSet<>(productIds);
+        List<Product> products = productRepository.findAllById(ids);
+
+        if (products.size() < ids.size()) {
+            Set<Long> found = products.stream().map(Product::getProductId).collect(Collectors.toSet());
+            Long missingId = ids.stream().filter(id -> !found.contains(id)).findFirst().orElseThrow();
+            throw new ResourceNotFoundException("Product", "productId", missingId);
+        }
+
+        // Admin can delete any product, sellers only their own
+        if (!isCurrentUserAdmin()) {
+            Long currentUserId = authUtil.loggedInUserId();
+            for (Product product : products) {
+                if (product.getUser() == null || !product.getUser().getUserId().equals(currentUserId)) {
+                    throw new APIException("You are not authorized to delete product " + product.getProductName());
+                }
+            }
         }
 
         // If the product has been part of any completed orders we must not delete it due to FK constraints
-        if (orderItemRepository.existsByProduct(product)) {
-            throw new APIException("Cannot delete this product because it has already been ordered by at least one customer");
+        Set<Long> orderedIds = new HashSet<>(orderItemRepository.findOrderedProductIds(ids));
+        for (Product product : products) {
+            if (orderedIds.contains(product.getProductId())) {
+                throw new APIException("Cannot delete " + product.getProductName()
+                        + " because it has already been ordered by at least one customer");
+            }
         }
 
-        List<Cart> carts = cartRepository.findCartsByProductId(productId);
-        carts.forEach(cart -> cartService.deleteProductFromCart(cart.getCartId(), productId));
+        cartItemRepository.deleteByProductIdsAndAdjustCarts(ids);
+        productRepository.deleteAllByIdInBatch(ids);
 
-        productRepository.delete(product);
-        return modelMapper.map(product, ProductDTO.class);
+        Set<Long> sellerIds = products.stream()
+                .filter(product -> product.getUser() != null)
+                .map(product -> product.getUser().getUserId())
+                .collect(Collectors.toSet());
+        eventPublisher.publishEvent(new SellerProductsChangedEvent(sellerIds));
+
+        return products.stream()
+                .map(product -> modelMapper.map(product, ProductDTO.class))
+                .toList();
     }
 
     @Override
@@ -186,39 +222,31 @@ public class ProductServiceImpl implements ProductService {
             throw new APIException("You are not authorized to edit this product");
         }
 
+        boolean priceChanged = product.getPrice() != productDTO.getPrice()
+                || product.getDiscount() != productDTO.getDiscount();
+
         product.setProductName(productDTO.getProductName());
         product.setDescription(productDTO.getDescription());
         product.setQuantity(productDTO.getQuantity());
-        product.setPrice(productDTO.getPrice());
-        product.setDiscount(productDTO.getDiscount());
-        double specialPrice = product.getPrice() - (product.getPrice() * product.getDiscount() / 100);
-        product.setSpecialPrice(specialPrice);
-        Product productDB = productRepository.save(product);
-
-        List<Cart> carts = cartRepository.findCartsByProductId(productId);
-
-        List<CartDTO> cartDTOs = carts.stream().map(cart -> {
-            CartDTO cartDTO = modelMapper.map(cart, CartDTO.class);
-
-            List<ProductDTO> products = cart.getCartItems().stream()
-                    .map(p -> modelMapper.map(p.getProduct(), ProductDTO.class)).toList();
-
-            cartDTO.setProducts(products);
-
-            return cartDTO;
 
-        }).toList();
+        if (priceChanged) {
+            product.setPrice(productDTO.getPrice());
+            product.setDiscount(productDTO.getDiscount());
+            double specialPrice = product.getPrice() - (product.getPrice() * product.getDiscount() / 100);
+            product.setSpecialPrice(specialPrice);
+            // Carts are not touched here; they reprice this product on their next read, change or checkout
+            product.setPriceVersion(product.getPriceVersion() + 1);
+        }
 
-        cartDTOs.forEach(cart -> cartService.updateProductInCarts(cart.getCartId(), productId));
+        Product productDB = productRepository.save(product);
 
         return modelMapper.map(productDB, ProductDTO.class);
     }
 
     @Override
     public ProductDTO getProductById(Long productId) {
-        Product product = productRepository.findById(productId)
+        return productRepository.findProductDTOById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
-        return modelMapper.map(product, ProductDTO.class);
     }
 
     @Override
@@ -239,21 +267,17 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public ProductResponse getSellerProducts(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
-        User currentUser = authUtil.loggedInUser();
+        Long sellerId = authUtil.loggedInUserId();
 
         Sort sortByAndOrder = sortOrder.equalsIgnoreCase("asc")
                 ? Sort.by(sortBy).ascending()
                 : Sort.by(sortBy).descending();
         Pageable pageable = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
 
-        Page<Product> productPage = productRepository.findByUser(currentUser, pageable);
-
-        List<Product> products = productPage.getContent();
-        List<ProductDTO> productDTOs = products.stream()
-                .map(product -> modelMapper.map(product, ProductDTO.class)).toList();
+        Page<ProductDTO> productPage = productRepository.findProductDTOsBySellerId(sellerId, pageable);
 
         ProductResponse productResponse = new ProductResponse();
-        productResponse.setContent(productDTOs);
+        productResponse.setContent(productPage.getContent());
         productResponse.setPageNumber(productPage.getNumber());
         productResponse.setPageSize(productPage.getSize());
         productResponse.setTotalElements(productPage.getTotalElements());
@@ -280,17 +304,18 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public boolean canCurrentUserDeleteProduct(Long productId) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-
         // Admin can delete any product
-        boolean isAdmin = authentication.getAuthorities().stream()
-                .anyMatch(authority -> authority.getAuthority().equals("ROLE_ADMIN"));
-
-        if (isAdmin) {
+        if (isCurrentUserAdmin()) {
             return true;
         }
 
         // Seller can only delete their own products
         return isProductOwner(productId);
     }
-}
\ No newline at end of file
+
+    private boolean isCurrentUserAdmin() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication.getAuthorities().stream()
+                .anyMatch(authority -> authority.getAuthority().equals("ROLE_ADMIN"));
+    }
+}
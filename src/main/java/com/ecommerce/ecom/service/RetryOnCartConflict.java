@@ -0,0 +1,28 @@
+package com.ecommerce.ecom.service;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Retries a cart mutation that lost an optimistic lock race, with jittered exponential backoff
+ * configured under {@code spring.app.cartRetry.*}. Conflicts and retries are counted by {@link CartRetryListener}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Retryable(retryFor = OptimisticLockingFailureException.class,
+        maxAttemptsExpression = "${spring.app.cartRetry.maxAttempts:4}",
+        backoff = @Backoff(delayExpression = "${spring.app.cartRetry.initialDelayMs:20}",
+                multiplierExpression = "${spring.app.cartRetry.multiplier:2}",
+                maxDelayExpression = "${spring.app.cartRetry.maxDelayMs:200}",
+                random = true),
+        listeners = "cartRetryListener")
+public @interface RetryOnCartConflict {
+}
@@ -0,0 +1,9 @@
+package com.ecommerce.ecom.service;
+
+import java.util.Set;
+
+/**
+ * Published when products are added or deleted, naming the sellers whose product count changed.
+ */
+public record SellerProductsChangedEvent(Set<Long> sellerIds) {
+}
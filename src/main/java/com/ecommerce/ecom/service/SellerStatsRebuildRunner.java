@@ -0,0 +1,30 @@
+package com.ecommerce.ecom.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recomputes seller_stats on startup when the application is launched with {@code --rebuild-seller-stats},
+ * rather than waiting for the first scheduled rebuild.
+ */
+@Component
+public class SellerStatsRebuildRunner implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(SellerStatsRebuildRunner.class);
+
+    public static final String REBUILD_OPTION = "rebuild-seller-stats";
+
+    @Autowired
+    private SellerStatsService sellerStatsService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (args.containsOption(REBUILD_OPTION)) {
+            logger.info("Rebuilding seller stats from order history");
+            sellerStatsService.rebuildSellerStats();
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.ecommerce.ecom.service;
+
+import com.ecommerce.ecom.payload.SellerDashboardStatsDTO;
+
+public interface SellerStatsService {
+    SellerDashboardStatsDTO getDashboardStats(Long sellerId);
+
+    int rebuildSellerStats();
+}
@@ -0,0 +1,159 @@
+package com.ecommerce.ecom.service;
+
+import com.ecommerce.ecom.model.SellerStats;
+import com.ecommerce.ecom.payload.SellerDashboardStatsDTO;
+import com.ecommerce.ecom.payload.SellerSalesDTO;
+import com.ecommerce.ecom.repositories.OrderItemRepository;
+import com.ecommerce.ecom.repositories.ProductRepository;
+import com.ecommerce.ecom.repositories.SellerStatsRepository;
+import com.ecommerce.ecom.util.HyperLogLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Maintains the seller_stats read model behind the seller dashboard.
+ * <p>
+ * Rows are adjusted after each order or product change commits, in a transaction of their own so a
+ * failure here never rolls back a checkout. Drift from a failed update is corrected by
+ * {@link #rebuildSellerStats()}, which recomputes every row from order_items.
+ * <p>
+ * Only the rebuild creates rows. A listener cannot seed a missing row correctly, as the order that
+ * triggered it may or may not already be in the history it would seed from, so sellers without a
+ * row are skipped and their dashboard is aggregated on the fly until the next rebuild. The rebuild
+ * runs on a schedule ({@code spring.app.sellerStats.rebuildIntervalMs}, hourly by default), so a new
+ * seller gets a row within one interval.
+ */
+@Service
+public class SellerStatsServiceImpl implements SellerStatsService {
+    private static final Logger logger = LoggerFactory.getLogger(SellerStatsServiceImpl.class);
+
+    @Autowired
+    private SellerStatsRepository sellerStatsRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Override
+    @Transactional(readOnly = true)
+    public SellerDashboardStatsDTO getDashboardStats(Long sellerId) {
+        return sellerStatsRepository.findById(sellerId)
+                .map(stats -> new SellerDashboardStatsDTO(stats.getTotalProducts(), stats.getTotalOrders(),
+                        stats.getTotalSales(), stats.getTotalCustomers()))
+                // No row for sellers that first sold or listed after the last rebuild; aggregate on the fly
+                .orElseGet(() -> orderItemRepository.findSellerDashboardStats(sellerId));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onOrderSales(OrderSalesEvent event) {
+        int sign = event.canceled() ? -1 : 1;
+
+        // Lock seller rows in id order so concurrent orders for the same sellers cannot deadlock
+        List<SellerSalesDTO> salesBySeller = orderItemRepository.findSellerSalesByOrderId(event.orderId()).stream()
+                .sorted(Comparator.comparing(SellerSalesDTO::getSellerId))
+                .toList();
+
+        for (SellerSalesDTO sales : salesBySeller) {
+            SellerStats stats = sellerStatsRepository.findByIdForUpdate(sales.getSellerId()).orElse(null);
+            if (stats == null) {
+                continue;
+            }
+            stats.setTotalOrders(Math.max(0, stats.getTotalOrders() + sign));
+            stats.setTotalSales(roundToCents(stats.getTotalSales() + sign * sales.getTotalSales()));
+
+            // A sketch cannot forget a customer, so cancellations leave the count until the next rebuild
+            if (!event.canceled()) {
+                HyperLogLog customers = HyperLogLog.fromBytes(stats.getCustomerSketch());
+                customers.add(event.customerEmail());
+                stats.setCustomerSketch(customers.toBytes());
+                stats.setTotalCustomers(customers.estimate());
+            }
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onSellerProductsChanged(SellerProductsChangedEvent event) {
+        event.sellerIds().stream().sorted().forEach(sellerId -> sellerStatsRepository.findByIdForUpdate(sellerId)
+                .ifPresent(stats -> stats.setTotalProducts(productRepository.countByUserUserId(sellerId))));
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${spring.app.sellerStats.rebuildIntervalMs:3600000}",
+            initialDelayString = "${spring.app.sellerStats.rebuildIntervalMs:3600000}")
+    @Transactional
+    public int rebuildSellerStats() {
+        // Taken before reading the history: listeners block on these rows until the rebuild commits,
+        // then apply their order on top of it rather than into a row the rebuild is about to replace
+        Map<Long, SellerStats> existing = sellerStatsRepository.findAllForUpdate().stream()
+                .collect(Collectors.toMap(SellerStats::getSellerId, Function.identity()));
+        Map<Long, SellerStats> rebuilt = new HashMap<>();
+
+        for (Object[] row : productRepository.countProductsBySeller()) {
+            statsFor(rebuilt, (Long) row[0]).setTotalProducts((Long) row[1]);
+        }
+
+        for (SellerSalesDTO sales : orderItemRepository.findSellerSales()) {
+            SellerStats stats = statsFor(rebuilt, sales.getSellerId());
+            stats.setTotalOrders(sales.getTotalOrders());
+            stats.setTotalSales(roundToCents(sales.getTotalSales()));
+        }
+
+        Map<Long, HyperLogLog> customersBySeller = new HashMap<>();
+        try (Stream<Object[]> rows = orderItemRepository.streamSellerCustomers()) {
+            rows.forEach(row -> customersBySeller
+                    .computeIfAbsent((Long) row[0], sellerId -> new HyperLogLog())
+                    .add((String) row[1]));
+        }
+        customersBySeller.forEach((sellerId, customers) -> {
+            SellerStats stats = statsFor(rebuilt, sellerId);
+            stats.setCustomerSketch(customers.toBytes());
+            stats.setTotalCustomers(customers.estimate());
+        });
+
+        // Update rows in place; deleting and re-inserting them would drop the locks held above
+        rebuilt.forEach((sellerId, stats) -> {
+            SellerStats row = existing.remove(sellerId);
+            if (row == null) {
+                sellerStatsRepository.save(stats);
+                return;
+            }
+            row.setTotalProducts(stats.getTotalProducts());
+            row.setTotalOrders(stats.getTotalOrders());
+            row.setTotalSales(stats.getTotalSales());
+            row.setCustomerSketch(stats.getCustomerSketch());
+            row.setTotalCustomers(stats.getTotalCustomers());
+        });
+        // Sellers left with no products and no orders
+        sellerStatsRepository.deleteAll(existing.values());
+
+        logger.info("Rebuilt seller stats for {} sellers", rebuilt.size());
+        return rebuilt.size();
+    }
+
+    private SellerStats statsFor(Map<Long, SellerStats> statsBySeller, Long sellerId) {
+        return statsBySeller.computeIfAbsent(sellerId, SellerStats::new);
+    }
+
+    private double roundToCents(double amount) {
+        return Math.round(amount * 100.0) / 100.0;
+    }
+}
@@ -3,11 +3,13 @@ package com.ecommerce.ecom.util;
 
 import com.ecommerce.ecom.model.User;
 import com.ecommerce.ecom.repositories.UserRepository;
+import com.ecommerce.ecom.security.services.UserDetailsImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
 
 @Component
 public class AuthUtil {
@@ -15,30 +17,52 @@ public class AuthUtil {
     @Autowired
     UserRepository userRepository;
 
-    public String loggedInEmail(){
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        User user = userRepository.findByUsername(authentication.getName())
-                .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + authentication.getName()));
+    @Autowired
+    RequestUserContext requestUserContext;
 
-        return user.getEmail();
+    public String loggedInEmail(){
+        return loggedInUser().getEmail();
     }
 
     public Long loggedInUserId(){
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        User user = userRepository.findByUsername(authentication.getName())
-                .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + authentication.getName()));
 
-        return user.getUserId();
+        // The user id never changes, so the authenticated principal can answer without a lookup
+        if (authentication.getPrincipal() instanceof UserDetailsImpl principal && principal.getId() != null) {
+            if (inRequest()) {
+                requestUserContext.recordLookupAvoided();
+            }
+            return principal.getId();
+        }
+
+        return loggedInUser().getUserId();
     }
 
     public User loggedInUser(){
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        // Outside of a web request (e.g. background work) there is nothing to share the lookup with
+        if (!inRequest()) {
+            return findLoggedInUser();
+        }
 
-        User user = userRepository.findByUsername(authentication.getName())
-                .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + authentication.getName()));
-        return user;
+        User user = requestUserContext.getUser();
+        if (user != null) {
+            requestUserContext.recordLookupAvoided();
+            return user;
+        }
 
+        user = findLoggedInUser();
+        requestUserContext.setUser(user);
+        return user;
     }
 
+    private User findLoggedInUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        return userRepository.findByUsername(authentication.getName())
+                .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + authentication.getName()));
+    }
 
-}
\ No newline at end of file
+    private boolean inRequest() {
+        return RequestContextHolder.getRequestAttributes() != null;
+    }
+}
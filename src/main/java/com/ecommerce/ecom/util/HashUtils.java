@@ -0,0 +1,28 @@
+package com.ecommerce.ecom.util;
+
+/**
+ * Fast non-cryptographic hashing for in-memory sketches (rate limiting, Bloom filters, cardinality).
+ */
+public final class HashUtils {
+
+    private HashUtils() {
+    }
+
+    /**
+     * Seeded 64-bit FNV-1a over the characters of the key, followed by the SplitMix64 finalizer
+     * so that every output bit depends on every input bit.
+     */
+    public static long hash64(CharSequence key, long seed) {
+        long h = 0xcbf29ce484222325L ^ seed;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 30;
+        h *= 0xbf58476d1ce4e5b9L;
+        h ^= h >>> 27;
+        h *= 0x94d049bb133111ebL;
+        h ^= h >>> 31;
+        return h;
+    }
+}
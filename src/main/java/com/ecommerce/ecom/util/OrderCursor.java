@@ -0,0 +1,35 @@
+package com.ecommerce.ecom.util;
+
+import com.ecommerce.ecom.exceptions.APIException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Position in a user's order history, ordered by (orderDate desc, orderId desc).
+ * Handed to clients as an opaque URL-safe token so the keyset columns can change without breaking them.
+ */
+public record OrderCursor(LocalDate orderDate, Long orderId) {
+
+    private static final char SEPARATOR = '|';
+
+    public String encode() {
+        String raw = orderDate.toString() + SEPARATOR + orderId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws APIException if the token was not produced by {@link #encode()}
+     */
+    public static OrderCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            return new OrderCursor(LocalDate.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new APIException("Invalid order history cursor");
+        }
+    }
+}
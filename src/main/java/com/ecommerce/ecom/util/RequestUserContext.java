@@ -0,0 +1,42 @@
+package com.ecommerce.ecom.util;
+
+import com.ecommerce.ecom.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+/**
+ * Holds the logged-in user resolved for the current request so that every
+ * controller and service call in the request shares a single lookup.
+ */
+@Component
+@RequestScope
+public class RequestUserContext {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private User user;
+
+    private int lookupsAvoided;
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public void recordLookupAvoided() {
+        lookupsAvoided++;
+    }
+
+    // Runs when the request completes
+    @PreDestroy
+    public void recordMetrics() {
+        meterRegistry.summary("auth.user.lookups.avoided").record(lookupsAvoided);
+    }
+}
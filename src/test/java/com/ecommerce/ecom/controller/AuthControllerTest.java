@@ -0,0 +1,110 @@
+package com.ecommerce.ecom.controller;
+
+import com.ecommerce.ecom.model.AppRole;
+import com.ecommerce.ecom.model.Role;
+import com.ecommerce.ecom.repositories.RoleRepository;
+import com.ecommerce.ecom.repositories.UserRepository;
+import com.ecommerce.ecom.security.request.SignupRequest;
+import com.ecommerce.ecom.security.response.MessageResponse;
+import com.ecommerce.ecom.security.services.UserDetailsServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Signup against H2, whose constraint violation messages differ from PostgreSQL's.
+ */
+@DataJpaTest(properties = {
+		"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.show-sql=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AuthControllerTest {
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private RoleRepository roleRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private UserRepository users;
+
+	private final AuthController controller = new AuthController();
+
+	@BeforeEach
+	void setUp() {
+		roleRepository.save(new Role(AppRole.ROLE_USER));
+		users = mock(UserRepository.class, delegatesTo(userRepository));
+		ReflectionTestUtils.setField(controller, "userRepository", users);
+		ReflectionTestUtils.setField(controller, "roleRepository", roleRepository);
+		ReflectionTestUtils.setField(controller, "encoder", NoOpPasswordEncoder.getInstance());
+		ReflectionTestUtils.setField(controller, "userDetailsService", mock(UserDetailsServiceImpl.class));
+
+		assertEquals(HttpStatus.OK, new TransactionTemplate(transactionManager)
+				.execute(status -> controller.registerUser(signup("alice", "alice@example.com")))
+				.getStatusCode());
+	}
+
+	@AfterEach
+	void tearDown() {
+		userRepository.deleteAll();
+		roleRepository.deleteAll();
+	}
+
+	@Test
+	void duplicateUsernameIsRecognizedByItsConstraintName() {
+		ResponseEntity<?> response = registerAndRollBack(signup("alice", "other@example.com"));
+
+		assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+		assertEquals("Error: Username is already taken!", ((MessageResponse) response.getBody()).getMessage());
+		verify(users, never()).existsByUsername(anyString());
+		verify(users, never()).existsByEmail(anyString());
+	}
+
+	@Test
+	void duplicateEmailIsRecognizedByItsConstraintName() {
+		ResponseEntity<?> response = registerAndRollBack(signup("bob", "alice@example.com"));
+
+		assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+		assertEquals("Error: Email is already in use!", ((MessageResponse) response.getBody()).getMessage());
+		verify(users, never()).existsByUsername(anyString());
+		verify(users, never()).existsByEmail(anyString());
+	}
+
+	// The request's session stays open around signup (open-in-view), so the loaded roles remain managed
+	private ResponseEntity<?> registerAndRollBack(SignupRequest request) {
+		return new TransactionTemplate(transactionManager).execute(status -> {
+			status.setRollbackOnly();
+			return controller.registerUser(request);
+		});
+	}
+
+	private static SignupRequest signup(String username, String email) {
+		SignupRequest request = new SignupRequest();
+		request.setUsername(username);
+		request.setEmail(email);
+		request.setPassword("password");
+		return request;
+	}
+}
@@ -0,0 +1,70 @@
+package com.ecommerce.ecom.controller;
+
+import com.ecommerce.ecom.config.AppConstants;
+import com.ecommerce.ecom.exceptions.GlobalExceptionHandler;
+import com.ecommerce.ecom.payload.CartDTO;
+import com.ecommerce.ecom.service.CartService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class CartControllerTest {
+
+	private final CartService cartService = mock(CartService.class);
+
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		CartController controller = new CartController();
+		ReflectionTestUtils.setField(controller, "cartService", cartService);
+		mockMvc = MockMvcBuilders.standaloneSetup(controller)
+				.setControllerAdvice(new GlobalExceptionHandler())
+				.build();
+	}
+
+	@Test
+	void batchWithinTheLimitIsApplied() throws Exception {
+		CartDTO cart = new CartDTO();
+		cart.setTotalPrice(25.0);
+		when(cartService.applyCartOperations(anyList())).thenReturn(cart);
+
+		mockMvc.perform(post("/api/carts/batch")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(batchOf(AppConstants.CART_BATCH_MAX_OPERATIONS)))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.totalPrice").value(25.0));
+	}
+
+	@Test
+	void oversizedBatchIsRejectedBeforeTouchingTheCart() throws Exception {
+		mockMvc.perform(post("/api/carts/batch")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(batchOf(AppConstants.CART_BATCH_MAX_OPERATIONS + 1)))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.operations").exists());
+
+		verify(cartService, never()).applyCartOperations(anyList());
+	}
+
+	private static String batchOf(int operations) {
+		return IntStream.rangeClosed(1, operations)
+				.mapToObj(productId -> "{\"type\":\"add\",\"productId\":" + productId + ",\"quantity\":1}")
+				.collect(Collectors.joining(",", "{\"operations\":[", "]}"));
+	}
+}
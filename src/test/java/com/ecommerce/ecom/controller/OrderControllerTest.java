@@ -0,0 +1,90 @@
+package com.ecommerce.ecom.controller;
+
+import com.ecommerce.ecom.config.AppConstants;
+import com.ecommerce.ecom.exceptions.GlobalExceptionHandler;
+import com.ecommerce.ecom.payload.OrderDTO;
+import com.ecommerce.ecom.service.OrderIdempotencyGuard;
+import com.ecommerce.ecom.service.OrderIntakeQueue;
+import com.ecommerce.ecom.service.OrderService;
+import com.ecommerce.ecom.util.AuthUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.function.Supplier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class OrderControllerTest {
+
+	private final OrderIdempotencyGuard orderIdempotencyGuard = mock(OrderIdempotencyGuard.class);
+
+	private final AuthUtil authUtil = mock(AuthUtil.class);
+
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		OrderController controller = new OrderController();
+		ReflectionTestUtils.setField(controller, "orderService", mock(OrderService.class));
+		ReflectionTestUtils.setField(controller, "orderIdempotencyGuard", orderIdempotencyGuard);
+		ReflectionTestUtils.setField(controller, "authUtil", authUtil);
+		ReflectionTestUtils.setField(controller, "orderIntakeQueue", mock(OrderIntakeQueue.class));
+		mockMvc = MockMvcBuilders.standaloneSetup(controller)
+				.setControllerAdvice(new GlobalExceptionHandler())
+				.build();
+		when(authUtil.loggedInEmail()).thenReturn("a@example.com");
+	}
+
+	@Test
+	void keyOfTheColumnLengthIsAccepted() throws Exception {
+		String key = "k".repeat(AppConstants.IDEMPOTENCY_KEY_MAX_LENGTH);
+		OrderDTO order = new OrderDTO();
+		order.setOrderId(7L);
+		when(orderIdempotencyGuard.placeOnce(eq("a@example.com"), eq(key), any())).thenReturn(order);
+
+		mockMvc.perform(post("/api/order/users/payments/card")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(orderRequest(key)))
+				.andExpect(status().isCreated())
+				.andExpect(jsonPath("$.orderId").value(7));
+	}
+
+	@Test
+	void overlongKeyIsRejectedBeforeTheOrderIsPlaced() throws Exception {
+		mockMvc.perform(post("/api/order/users/payments/card")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(orderRequest("k".repeat(AppConstants.IDEMPOTENCY_KEY_MAX_LENGTH + 1))))
+				.andExpect(status().isBadRequest());
+
+		verify(orderIdempotencyGuard, never()).placeOnce(anyString(), anyString(), any(Supplier.class));
+	}
+
+	@Test
+	void keyWithUnexpectedCharactersIsRejected() throws Exception {
+		mockMvc.perform(post("/api/order/users/payments/card")
+						.param("async", "true")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(orderRequest("key with spaces\\n")))
+				.andExpect(status().isBadRequest());
+
+		verify(orderIdempotencyGuard, never()).placeOnce(anyString(), anyString(), any(Supplier.class));
+	}
+
+	private static String orderRequest(String idempotencyKey) {
+		return "{\"addressId\":1,\"pgName\":\"stripe\",\"pgPaymentId\":\"pg-1\",\"pgStatus\":\"succeeded\","
+				+ "\"pgResponseMessage\":\"ok\",\"idempotencyKey\":\"" + idempotencyKey + "\"}";
+	}
+}
@@ -0,0 +1,64 @@
+package com.ecommerce.ecom.controller;
+
+import com.ecommerce.ecom.exceptions.APIException;
+import com.ecommerce.ecom.exceptions.GlobalExceptionHandler;
+import com.ecommerce.ecom.payload.ProductDTO;
+import com.ecommerce.ecom.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ProductControllerTest {
+
+	private final ProductService productService = mock(ProductService.class);
+
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		ProductController controller = new ProductController();
+		ReflectionTestUtils.setField(controller, "productService", productService);
+		mockMvc = MockMvcBuilders.standaloneSetup(controller)
+				.setControllerAdvice(new GlobalExceptionHandler())
+				.build();
+	}
+
+	@Test
+	void bulkDeleteReturnsTheDeletedProducts() throws Exception {
+		ProductDTO lamp = new ProductDTO();
+		lamp.setProductId(3L);
+		lamp.setProductName("Lamp");
+		when(productService.deleteProducts(List.of(3L, 4L))).thenReturn(List.of(lamp));
+
+		mockMvc.perform(post("/api/admin/products/bulk-delete")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("[3, 4]"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].productName").value("Lamp"));
+
+		verify(productService).deleteProducts(List.of(3L, 4L));
+	}
+
+	@Test
+	void bulkDeleteOfAnOrderedProductIsABadRequest() throws Exception {
+		when(productService.deleteProducts(List.of(3L)))
+				.thenThrow(new APIException("Cannot delete Lamp because it has already been ordered by at least one customer"));
+
+		mockMvc.perform(post("/api/admin/products/bulk-delete")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("[3]"))
+				.andExpect(status().isBadRequest());
+	}
+}
@@ -0,0 +1,87 @@
+package com.ecommerce.ecom.controller;
+
+import com.ecommerce.ecom.exceptions.GlobalExceptionHandler;
+import com.ecommerce.ecom.model.User;
+import com.ecommerce.ecom.repositories.UserRepository;
+import com.ecommerce.ecom.security.services.UserDetailsServiceImpl;
+import com.ecommerce.ecom.util.AuthUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class UserProfileControllerTest {
+
+	private final UserRepository userRepository = mock(UserRepository.class);
+
+	private final PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+
+	private final UserDetailsServiceImpl userDetailsService = mock(UserDetailsServiceImpl.class);
+
+	private final User alice = new User("alice", "alice@example.com", "old-hash");
+
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		AuthUtil authUtil = mock(AuthUtil.class);
+		when(authUtil.loggedInUser()).thenReturn(alice);
+
+		UserProfileController controller = new UserProfileController();
+		ReflectionTestUtils.setField(controller, "userRepository", userRepository);
+		ReflectionTestUtils.setField(controller, "passwordEncoder", passwordEncoder);
+		ReflectionTestUtils.setField(controller, "authUtil", authUtil);
+		ReflectionTestUtils.setField(controller, "userDetailsService", userDetailsService);
+		mockMvc = MockMvcBuilders.standaloneSetup(controller)
+				.setControllerAdvice(new GlobalExceptionHandler())
+				.build();
+	}
+
+	@Test
+	void passwordChangeEvictsTheCachedPrincipal() throws Exception {
+		when(passwordEncoder.matches("current", "old-hash")).thenReturn(true);
+		when(passwordEncoder.encode("replacement")).thenReturn("new-hash");
+
+		mockMvc.perform(put("/api/profile/password")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"currentPassword\":\"current\",\"newPassword\":\"replacement\"}"))
+				.andExpect(status().isOk());
+
+		verify(userRepository).save(alice);
+		verify(userDetailsService).evict("alice");
+	}
+
+	@Test
+	void rejectedPasswordChangeKeepsTheCachedPrincipal() throws Exception {
+		when(passwordEncoder.matches("wrong", "old-hash")).thenReturn(false);
+
+		mockMvc.perform(put("/api/profile/password")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"currentPassword\":\"wrong\",\"newPassword\":\"replacement\"}"))
+				.andExpect(status().isBadRequest());
+
+		verify(userDetailsService, never()).evict(anyString());
+	}
+
+	@Test
+	void emailChangeEvictsTheCachedPrincipal() throws Exception {
+		mockMvc.perform(put("/api/profile/email")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"email\":\"alice@new.example.com\"}"))
+				.andExpect(status().isOk());
+
+		verify(userRepository).save(alice);
+		verify(userDetailsService).evict("alice");
+	}
+}
@@ -0,0 +1,97 @@
+package com.ecommerce.ecom.model;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pins that entity ids come from pooled sequences, so inserting many rows reads the sequence once
+ * per block of ids and the inserts themselves go out as JDBC batches.
+ */
+@DataJpaTest(properties = {
+		"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.show-sql=false",
+		"spring.jpa.properties.hibernate.jdbc.batch_size=50",
+		"spring.jpa.properties.hibernate.order_inserts=true",
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"spring.jpa.properties.hibernate.session_factory.statement_inspector=com.ecommerce.ecom.model.PooledIdAllocationTest$SequenceReads"
+})
+class PooledIdAllocationTest {
+
+	private static final int ALLOCATION_SIZE = 50;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+	}
+
+	@Test
+	void idsAreReservedInBlocks() {
+		// Takes the first block, so the reads counted below are only those for further blocks
+		entityManager.persist(category(-1));
+		entityManager.flush();
+		SequenceReads.COUNT.set(0);
+
+		List<Category> categories = new ArrayList<>();
+		for (int i = 0; i < 2 * ALLOCATION_SIZE; i++) {
+			Category category = category(i);
+			entityManager.persist(category);
+			categories.add(category);
+		}
+
+		// One read per further block of 50, instead of one per row
+		assertEquals(2, SequenceReads.COUNT.get());
+		for (int i = 1; i < categories.size(); i++) {
+			assertTrue(categories.get(i).getCategoryId() > categories.get(i - 1).getCategoryId());
+		}
+	}
+
+	@Test
+	void insertsGoOutAsBatches() {
+		for (int i = 0; i < ALLOCATION_SIZE; i++) {
+			entityManager.persist(category(i));
+		}
+		statistics.clear();
+
+		entityManager.flush();
+
+		assertEquals(ALLOCATION_SIZE, statistics.getEntityInsertCount());
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+
+	private static Category category(int index) {
+		Category category = new Category();
+		category.setCategoryName("Category " + index);
+		return category;
+	}
+
+	public static class SequenceReads implements StatementInspector {
+		static final AtomicInteger COUNT = new AtomicInteger();
+
+		@Override
+		public String inspect(String sql) {
+			if (sql.contains("next value for")) {
+				COUNT.incrementAndGet();
+			}
+			return sql;
+		}
+	}
+}
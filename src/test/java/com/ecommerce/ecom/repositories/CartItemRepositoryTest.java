@@ -0,0 +1,196 @@
+package com.ecommerce.ecom.repositories;
+
+import com.ecommerce.ecom.model.Cart;
+import com.ecommerce.ecom.model.Product;
+import com.ecommerce.ecom.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Concurrent adds of the same product into one cart, through the MERGE-based upsert on H2.
+ */
+@DataJpaTest(properties = {
+		"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.show-sql=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CartItemRepositoryTest {
+
+	private static final int THREADS = 8;
+
+	private static final int ADDS_PER_THREAD = 10;
+
+	@Autowired
+	private CartRepository cartRepository;
+
+	@Autowired
+	private CartItemRepository cartItemRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private User user;
+
+	private Product product;
+
+	private Cart cart;
+
+	@BeforeEach
+	void setUp() {
+		user = userRepository.save(new User("cartrace", "cartrace@example.com", "password"));
+
+		Product newProduct = new Product();
+		newProduct.setProductName("Race lamp");
+		newProduct.setDescription("Added to one cart from many threads");
+		newProduct.setQuantity(THREADS * ADDS_PER_THREAD);
+		newProduct.setPrice(12.5);
+		newProduct.setSpecialPrice(12.5);
+		product = productRepository.save(newProduct);
+
+		Cart newCart = new Cart();
+		newCart.setUser(user);
+		newCart.setTotalPrice(0.0);
+		cart = cartRepository.save(newCart);
+	}
+
+	@AfterEach
+	void tearDown() {
+		cartItemRepository.deleteAllInBatch();
+		cartRepository.deleteAllInBatch();
+		productRepository.deleteAllInBatch();
+		userRepository.deleteAllInBatch();
+	}
+
+	@Test
+	void concurrentAddsOfOneProductKeepTheTotalEqualToTheLines() throws Exception {
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		ExecutorService clients = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		// Ids handed to the upsert; only the first add inserts, the rest leave theirs unused
+		AtomicLong ids = new AtomicLong(1_000_000L);
+		List<CompletableFuture<Void>> adds = new ArrayList<>();
+
+		try {
+			for (int i = 0; i < THREADS; i++) {
+				adds.add(CompletableFuture.runAsync(() -> {
+					await(start);
+					for (int j = 0; j < ADDS_PER_THREAD; j++) {
+						transaction.executeWithoutResult(status -> {
+							cartRepository.findByIdForUpdate(cart.getCartId());
+							assertEquals(1, cartItemRepository.upsertCartItem(
+									ids.incrementAndGet(), cart.getCartId(), product.getProductId(), 1));
+						});
+					}
+				}, clients));
+			}
+			start.countDown();
+			CompletableFuture.allOf(adds.toArray(CompletableFuture[]::new)).join();
+		} finally {
+			clients.shutdownNow();
+		}
+
+		Integer quantity = jdbcTemplate.queryForObject(
+				"SELECT quantity FROM cart_items WHERE cart_id = ?", Integer.class, cart.getCartId());
+		Double lineTotal = jdbcTemplate.queryForObject(
+				"SELECT SUM(quantity * product_price) FROM cart_items WHERE cart_id = ?", Double.class, cart.getCartId());
+		Double cartTotal = jdbcTemplate.queryForObject(
+				"SELECT total_price FROM carts WHERE cart_id = ?", Double.class, cart.getCartId());
+
+		assertEquals(THREADS * ADDS_PER_THREAD, quantity);
+		assertEquals(THREADS * ADDS_PER_THREAD * 12.5, lineTotal, 0.001);
+		assertEquals(lineTotal, cartTotal, 0.001);
+	}
+
+	@Test
+	void upsertInsertsANewLineWithTheGivenIdAndTheProductPrice() {
+		assertEquals(1, upsert(500L, 3));
+
+		assertEquals(500L, jdbcTemplate.queryForObject(
+				"SELECT cart_item_id FROM cart_items WHERE cart_id = ?", Long.class, cart.getCartId()));
+		assertEquals(3, lineQuantity());
+		assertEquals(37.5, cartTotal(), 0.001);
+	}
+
+	@Test
+	void upsertIncrementsAnExistingLineAndRepricesIt() {
+		upsert(500L, 2);
+		jdbcTemplate.update("UPDATE products SET special_price = 10.0 WHERE product_id = ?", product.getProductId());
+
+		assertEquals(1, upsert(501L, 3));
+
+		assertEquals(1, jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM cart_items WHERE cart_id = ?", Integer.class, cart.getCartId()));
+		assertEquals(500L, jdbcTemplate.queryForObject(
+				"SELECT cart_item_id FROM cart_items WHERE cart_id = ?", Long.class, cart.getCartId()));
+		assertEquals(5, lineQuantity());
+		// 25.0 for the first two, replaced by 5 x 10.0 at the new price
+		assertEquals(50.0, cartTotal(), 0.001);
+	}
+
+	@Test
+	void upsertBeyondStockChangesNothing() {
+		assertEquals(0, upsert(500L, THREADS * ADDS_PER_THREAD + 1));
+		assertEquals(0, jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM cart_items WHERE cart_id = ?", Integer.class, cart.getCartId()));
+
+		upsert(501L, THREADS * ADDS_PER_THREAD);
+		assertEquals(0, upsert(502L, 1));
+
+		assertEquals(THREADS * ADDS_PER_THREAD, lineQuantity());
+		assertEquals(THREADS * ADDS_PER_THREAD * 12.5, cartTotal(), 0.001);
+	}
+
+	private int upsert(long cartItemId, int quantity) {
+		return new TransactionTemplate(transactionManager).execute(status -> {
+			cartRepository.findByIdForUpdate(cart.getCartId());
+			return cartItemRepository.upsertCartItem(cartItemId, cart.getCartId(), product.getProductId(), quantity);
+		});
+	}
+
+	private int lineQuantity() {
+		return jdbcTemplate.queryForObject(
+				"SELECT quantity FROM cart_items WHERE cart_id = ?", Integer.class, cart.getCartId());
+	}
+
+	private double cartTotal() {
+		return jdbcTemplate.queryForObject(
+				"SELECT total_price FROM carts WHERE cart_id = ?", Double.class, cart.getCartId());
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package com.ecommerce.ecom.repositories;
+
+import com.ecommerce.ecom.model.Order;
+import com.ecommerce.ecom.model.OrderItem;
+import com.ecommerce.ecom.model.Product;
+import com.ecommerce.ecom.model.User;
+import com.ecommerce.ecom.payload.SellerDashboardStatsDTO;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = {
+		"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.show-sql=false"
+})
+class OrderItemRepositoryTest {
+
+	@Autowired
+	private OrderItemRepository orderItemRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Test
+	void aggregatesSellerDashboardStats() {
+		User seller = persistUser("seller", "seller@example.com");
+		User otherSeller = persistUser("other", "other@example.com");
+		Product lamp = persistProduct("Lamp", seller);
+		Product chair = persistProduct("Chair", seller);
+		persistProduct("Unsold desk", seller);
+		Product rug = persistProduct("Rug", otherSeller);
+
+		Order first = persistOrder("a@example.com");
+		persistItem(first, lamp, 2, 10.0);
+		persistItem(first, chair, 1, 25.0);
+		persistItem(first, rug, 5, 100.0);
+		Order second = persistOrder("a@example.com");
+		persistItem(second, lamp, 1, 12.5);
+		Order third = persistOrder("b@example.com");
+		persistItem(third, chair, 3, 20.0);
+		entityManager.flush();
+		entityManager.clear();
+
+		SellerDashboardStatsDTO stats = orderItemRepository.findSellerDashboardStats(seller.getUserId());
+
+		assertEquals(3L, stats.getTotalProducts());
+		assertEquals(3L, stats.getTotalOrders());
+		assertEquals(117.5, stats.getTotalSales(), 0.0001);
+		assertEquals(2L, stats.getTotalCustomers());
+	}
+
+	@Test
+	void returnsZerosForSellerWithoutSales() {
+		User seller = persistUser("seller", "seller@example.com");
+
+		SellerDashboardStatsDTO stats = orderItemRepository.findSellerDashboardStats(seller.getUserId());
+
+		assertEquals(0L, stats.getTotalProducts());
+		assertEquals(0L, stats.getTotalOrders());
+		assertEquals(0.0, stats.getTotalSales());
+		assertEquals(0L, stats.getTotalCustomers());
+	}
+
+	private User persistUser(String username, String email) {
+		User user = new User(username, email, "password");
+		entityManager.persist(user);
+		return user;
+	}
+
+	private Product persistProduct(String name, User seller) {
+		Product product = new Product();
+		product.setProductName(name);
+		product.setDescription("A product for the dashboard");
+		product.setQuantity(10);
+		product.setUser(seller);
+		entityManager.persist(product);
+		return product;
+	}
+
+	private Order persistOrder(String email) {
+		Order order = new Order();
+		order.setEmail(email);
+		order.setOrderDate(LocalDate.now());
+		order.setOrderStatus("Order Placed.");
+		entityManager.persist(order);
+		return order;
+	}
+
+	private void persistItem(Order order, Product product, int quantity, double price) {
+		OrderItem item = new OrderItem();
+		item.setOrder(order);
+		item.setProduct(product);
+		item.setQuantity(quantity);
+		item.setOrderedProductPrice(price);
+		entityManager.persist(item);
+	}
+}
@@ -0,0 +1,183 @@
+package com.ecommerce.ecom.repositories;
+
+import com.ecommerce.ecom.model.Address;
+import com.ecommerce.ecom.model.Category;
+import com.ecommerce.ecom.model.Order;
+import com.ecommerce.ecom.model.OrderItem;
+import com.ecommerce.ecom.model.Payment;
+import com.ecommerce.ecom.model.Product;
+import com.ecommerce.ecom.model.User;
+import com.ecommerce.ecom.payload.OrderSummaryDTO;
+import com.ecommerce.ecom.util.OrderCursor;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = {
+		"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.show-sql=false",
+		"spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class OrderRepositoryTest {
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private Statistics statistics;
+
+	private User seller;
+
+	private Category category;
+
+	private Address address;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+		seller = new User("seller", "seller@example.com", "password");
+		entityManager.persist(seller);
+
+		category = new Category();
+		category.setCategoryName("Kitchen");
+		entityManager.persist(category);
+
+		address = new Address("10001", "USA", "NY", "New York", "1A", "Main Street");
+		address.setUser(seller);
+		entityManager.persist(address);
+	}
+
+	@Test
+	void loadsOrderDetailsInOneStatementRegardlessOfLineCount() {
+		assertEquals(1, statementsToReadOrder(placeOrder(1)));
+		assertEquals(1, statementsToReadOrder(placeOrder(8)));
+	}
+
+	@Test
+	void findsPendingOrdersCreatedBeforeTheCutoff() {
+		LocalDateTime cutoff = LocalDateTime.now().minusMinutes(10);
+		Long stale = orderWithStatus("Pending", cutoff.minusMinutes(1));
+		Long legacy = orderWithStatus("Pending", null);
+		orderWithStatus("Pending", cutoff.plusMinutes(1));
+		orderWithStatus("Order Placed.", cutoff.minusMinutes(1));
+		entityManager.flush();
+
+		assertEquals(List.of(stale, legacy), orderRepository.findOrderIdsByStatusCreatedBefore("Pending", cutoff));
+	}
+
+	@Test
+	void keysetPagesNeitherSkipNorRepeatOrdersOnTheSameDate() {
+		LocalDate today = LocalDate.now();
+		List<Order> expected = new ArrayList<>();
+		// Five orders share today's date, so page boundaries fall between them
+		for (int i = 0; i < 5; i++) {
+			expected.add(orderOn("buyer@example.com", today));
+		}
+		expected.add(orderOn("buyer@example.com", today.minusDays(1)));
+		expected.add(orderOn("buyer@example.com", today.minusDays(1)));
+		orderOn("other@example.com", today);
+		entityManager.flush();
+		expected.sort(Comparator.comparing(Order::getOrderDate).thenComparing(Order::getOrderId).reversed());
+
+		PageRequest pageOfThree = PageRequest.ofSize(3);
+		List<Long> seen = new ArrayList<>();
+		List<OrderSummaryDTO> page = orderRepository.findOrderSummaries("buyer@example.com", pageOfThree);
+		while (!page.isEmpty()) {
+			page.forEach(summary -> seen.add(summary.getOrderId()));
+			OrderSummaryDTO last = page.get(page.size() - 1);
+			// Round-trip the cursor the way the history endpoint hands it to clients
+			OrderCursor cursor = OrderCursor.decode(new OrderCursor(last.getOrderDate(), last.getOrderId()).encode());
+			page = orderRepository.findOrderSummariesAfter("buyer@example.com",
+					cursor.orderDate(), cursor.orderId(), pageOfThree);
+		}
+
+		assertEquals(expected.stream().map(Order::getOrderId).toList(), seen);
+	}
+
+	private Long orderWithStatus(String status, LocalDateTime createdAt) {
+		Order order = new Order();
+		order.setEmail("buyer@example.com");
+		order.setOrderDate(LocalDate.now());
+		order.setCreatedAt(createdAt);
+		order.setOrderStatus(status);
+		order.setAddress(address);
+		entityManager.persist(order);
+		return order.getOrderId();
+	}
+
+	private Order orderOn(String email, LocalDate orderDate) {
+		Order order = new Order();
+		order.setEmail(email);
+		order.setOrderDate(orderDate);
+		order.setOrderStatus("Order Placed.");
+		order.setAddress(address);
+		entityManager.persist(order);
+		return order;
+	}
+
+	private long statementsToReadOrder(Long orderId) {
+		entityManager.flush();
+		entityManager.clear();
+		statistics.clear();
+
+		Order order = orderRepository.findByIdWithDetails(orderId).orElseThrow();
+
+		// Touch everything an order detail response reads
+		assertEquals("card", order.getPayment().getPaymentMethod());
+		assertEquals("Main Street", order.getAddress().getStreet());
+		order.getOrderItems().forEach(item -> item.getProduct().getProductName());
+
+		return statistics.getPrepareStatementCount();
+	}
+
+	private Long placeOrder(int lines) {
+		Order order = new Order();
+		order.setEmail("buyer@example.com");
+		order.setOrderDate(LocalDate.now());
+		order.setOrderStatus("Order Placed.");
+		order.setAddress(address);
+
+		Payment payment = new Payment("card", "pg-1", "succeeded", "ok", "stripe");
+		payment.setOrder(order);
+		order.setPayment(payment);
+
+		for (int i = 0; i < lines; i++) {
+			Product product = new Product();
+			product.setProductName("Product " + i);
+			product.setDescription("A product for the order");
+			product.setQuantity(10);
+			product.setPrice(5.0);
+			product.setSpecialPrice(5.0);
+			product.setCategory(category);
+			product.setUser(seller);
+			entityManager.persist(product);
+
+			OrderItem item = new OrderItem();
+			item.setProduct(product);
+			item.setQuantity(1);
+			item.setOrderedProductPrice(5.0);
+			item.setOrder(order);
+			order.getOrderItems().add(item);
+		}
+
+		entityManager.persist(order);
+		return order.getOrderId();
+	}
+}
@@ -0,0 +1,143 @@
+package com.ecommerce.ecom.repositories;
+
+import com.ecommerce.ecom.model.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Concurrent checkouts racing for the same stock through the conditional decrement. The UPDATE is
+ * plain SQL, so it runs on H2 with real, committed transactions.
+ */
+@DataJpaTest(properties = {
+		"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.show-sql=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductRepositoryConcurrencyTest {
+
+	private static final int THREADS = 16;
+
+	private static final int ORDERS_PER_THREAD = 10;
+
+	private static final int LAMP_STOCK = 100;
+
+	private static final int SHADE_STOCK = 60;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private Product lamp;
+
+	private Product shade;
+
+	@BeforeEach
+	void setUp() {
+		lamp = productRepository.save(newProduct("Lamp", LAMP_STOCK));
+		shade = productRepository.save(newProduct("Shade", SHADE_STOCK));
+	}
+
+	@AfterEach
+	void tearDown() {
+		productRepository.deleteAllInBatch();
+	}
+
+	@Test
+	void concurrentCheckoutsNeverOversell() {
+		AtomicInteger placed = runCheckouts(Map.of(lamp.getProductId(), 1));
+
+		assertEquals(LAMP_STOCK, placed.get());
+		assertEquals(0, stockOf(lamp));
+	}
+
+	@Test
+	void orderThatRunsOutOnOneLineRollsBackItsOtherLines() {
+		// Every order takes one lamp and one shade; shades run out first
+		AtomicInteger placed = runCheckouts(new TreeMap<>(Map.of(lamp.getProductId(), 1, shade.getProductId(), 1)));
+
+		assertEquals(SHADE_STOCK, placed.get());
+		assertEquals(0, stockOf(shade));
+		assertEquals(LAMP_STOCK - SHADE_STOCK, stockOf(lamp));
+	}
+
+	private AtomicInteger runCheckouts(Map<Long, Integer> order) {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		ExecutorService checkouts = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger placed = new AtomicInteger();
+		List<CompletableFuture<Void>> results = new ArrayList<>();
+
+		try {
+			for (int i = 0; i < THREADS; i++) {
+				results.add(CompletableFuture.runAsync(() -> {
+					await(start);
+					for (int j = 0; j < ORDERS_PER_THREAD; j++) {
+						transactionTemplate.executeWithoutResult(status -> {
+							// As OrderServiceImpl does, a short line rolls the whole order back
+							if (productRepository.decrementStock(order).isEmpty()) {
+								placed.incrementAndGet();
+							} else {
+								status.setRollbackOnly();
+							}
+						});
+					}
+				}, checkouts));
+			}
+			start.countDown();
+			CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).join();
+		} finally {
+			checkouts.shutdownNow();
+		}
+
+		assertTrue(THREADS * ORDERS_PER_THREAD > LAMP_STOCK, "demand must exceed stock");
+		return placed;
+	}
+
+	private int stockOf(Product product) {
+		int stock = productRepository.findById(product.getProductId()).orElseThrow().getQuantity();
+		assertTrue(stock >= 0, "stock went negative: " + stock);
+		return stock;
+	}
+
+	private static Product newProduct(String name, int stock) {
+		Product product = new Product();
+		product.setProductName(name);
+		product.setDescription("Bought by many checkouts at once");
+		product.setQuantity(stock);
+		product.setPrice(10.0);
+		product.setSpecialPrice(10.0);
+		return product;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+}
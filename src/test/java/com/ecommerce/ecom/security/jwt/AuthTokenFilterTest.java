@@ -0,0 +1,113 @@
+package com.ecommerce.ecom.security.jwt;
+
+import com.ecommerce.ecom.security.services.TokenRevocationService;
+import com.ecommerce.ecom.security.services.UserDetailsImpl;
+import com.ecommerce.ecom.security.services.UserDetailsServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthTokenFilterTest {
+
+	private final JwtUtils jwtUtils = JwtTokenVerifierTest.jwtUtils();
+
+	private final UserDetailsServiceImpl userDetailsService = mock(UserDetailsServiceImpl.class);
+
+	private final TokenRevocationService tokenRevocationService = mock(TokenRevocationService.class);
+
+	private final AuthTokenFilter filter = new AuthTokenFilter();
+
+	@BeforeEach
+	void setUp() {
+		JwtTokenVerifier verifier = new JwtTokenVerifier(100);
+		ReflectionTestUtils.setField(verifier, "jwtUtils", jwtUtils);
+
+		ReflectionTestUtils.setField(filter, "jwtUtils", jwtUtils);
+		ReflectionTestUtils.setField(filter, "jwtTokenVerifier", verifier);
+		ReflectionTestUtils.setField(filter, "userDetailsService", userDetailsService);
+		ReflectionTestUtils.setField(filter, "tokenRevocationService", tokenRevocationService);
+		ReflectionTestUtils.setField(filter, "dbLookupPaths", new String[]{"/api/profile/**"});
+	}
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void principalIsBuiltFromTheTokenClaimsWithoutAUserLookup() throws Exception {
+		String token = jwtUtils.generateTokenFromUsername("alice", 7L, "alice@example.com",
+				List.of("ROLE_USER", "ROLE_SELLER"), 60_000L);
+
+		Authentication authentication = authenticate("/api/carts/users/cart", token);
+
+		UserDetailsImpl principal = (UserDetailsImpl) authentication.getPrincipal();
+		assertEquals(7L, principal.getId());
+		assertEquals("alice", principal.getUsername());
+		assertEquals("alice@example.com", principal.getEmail());
+		assertNull(principal.getPassword());
+		assertEquals(List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_SELLER")),
+				List.copyOf(authentication.getAuthorities()));
+		verify(userDetailsService, never()).loadUserByUsername(anyString());
+	}
+
+	@Test
+	void profileEndpointsLoadTheUserFromTheDatabase() throws Exception {
+		String token = jwtUtils.generateTokenFromUsername("alice", 7L, "alice@example.com", List.of("ROLE_USER"), 60_000L);
+		UserDetailsImpl stored = new UserDetailsImpl(7L, "alice", "alice@new.example.com", "hash",
+				List.of(new SimpleGrantedAuthority("ROLE_USER")));
+		when(userDetailsService.loadUserByUsername("alice")).thenReturn(stored);
+
+		Authentication authentication = authenticate("/api/profile/update", token);
+
+		assertEquals("alice@new.example.com", ((UserDetailsImpl) authentication.getPrincipal()).getEmail());
+	}
+
+	@Test
+	void tokenWithoutPrincipalClaimsFallsBackToTheDatabase() throws Exception {
+		String token = jwtUtils.generateTokenFromUsername("alice", 60_000L);
+		UserDetailsImpl stored = new UserDetailsImpl(7L, "alice", "alice@example.com", "hash",
+				List.of(new SimpleGrantedAuthority("ROLE_USER")));
+		when(userDetailsService.loadUserByUsername("alice")).thenReturn(stored);
+
+		Authentication authentication = authenticate("/api/carts/users/cart", token);
+
+		assertEquals(7L, ((UserDetailsImpl) authentication.getPrincipal()).getId());
+	}
+
+	@Test
+	void revokedTokenLeavesTheRequestUnauthenticated() throws Exception {
+		String token = jwtUtils.generateTokenFromUsername("alice", 7L, "alice@example.com", List.of("ROLE_USER"), 60_000L);
+		when(tokenRevocationService.isRevoked(any())).thenReturn(true);
+
+		assertNull(authenticate("/api/carts/users/cart", token));
+		verify(userDetailsService, never()).loadUserByUsername(anyString());
+	}
+
+	private Authentication authenticate(String path, String token) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+		request.setServletPath(path);
+		request.addHeader("Authorization", "Bearer " + token);
+
+		filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+		return SecurityContextHolder.getContext().getAuthentication();
+	}
+}
@@ -0,0 +1,88 @@
+package com.ecommerce.ecom.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class JwtTokenVerifierTest {
+
+	static final String SECRET = Base64.getEncoder().encodeToString("a-test-signing-key-of-at-least-256-bits".getBytes());
+
+	private JwtUtils jwtUtils;
+
+	private final JwtTokenVerifier verifier = new JwtTokenVerifier(100);
+
+	static JwtUtils jwtUtils() {
+		JwtUtils jwtUtils = new JwtUtils();
+		ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+		ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 3_600_000L);
+		ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMsExtended", 7_200_000L);
+		jwtUtils.init();
+		return jwtUtils;
+	}
+
+	@BeforeEach
+	void setUp() {
+		jwtUtils = spy(jwtUtils());
+		ReflectionTestUtils.setField(verifier, "jwtUtils", jwtUtils);
+	}
+
+	@Test
+	void parsesEachTokenOnceWhileItIsCached() {
+		String token = jwtUtils.generateTokenFromUsername("alice", 7L, "alice@example.com", List.of("ROLE_USER"), 60_000L);
+
+		Claims first = verifier.verify(token);
+		Claims second = verifier.verify(token);
+
+		assertEquals("alice", first.getSubject());
+		assertEquals(first, second);
+		verify(jwtUtils, times(1)).parseClaims(token);
+	}
+
+	@Test
+	void invalidatedTokenIsParsedAgain() {
+		String token = jwtUtils.generateTokenFromUsername("alice", 7L, "alice@example.com", List.of("ROLE_USER"), 60_000L);
+		verifier.verify(token);
+
+		verifier.invalidate(token);
+		verifier.verify(token);
+
+		verify(jwtUtils, times(2)).parseClaims(token);
+	}
+
+	@Test
+	void cachedTokenIsRejectedOnceItExpires() throws InterruptedException {
+		// The exp claim has second precision, so this token lapses within a second
+		String token = jwtUtils.generateTokenFromUsername("alice", 7L, "alice@example.com", List.of("ROLE_USER"), 1_000L);
+		assertNotNull(verifier.verify(token));
+
+		Thread.sleep(1_100L);
+
+		assertNull(verifier.verify(token));
+		verify(jwtUtils, times(2)).parseClaims(token);
+	}
+
+	@Test
+	void tokenSignedWithAnotherKeyIsNeverCached() {
+		JwtUtils otherIssuer = new JwtUtils();
+		ReflectionTestUtils.setField(otherIssuer, "jwtSecret",
+				Base64.getEncoder().encodeToString("another-signing-key-of-at-least-256-bits".getBytes()));
+		otherIssuer.init();
+		String forged = otherIssuer.generateTokenFromUsername("mallory", 60_000L);
+
+		assertNull(verifier.verify(forged));
+		assertNull(verifier.verify(forged));
+		verify(jwtUtils, times(2)).parseClaims(forged);
+	}
+}
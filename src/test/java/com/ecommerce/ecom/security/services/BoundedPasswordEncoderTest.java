@@ -0,0 +1,121 @@
+package com.ecommerce.ecom.security.services;
+
+import com.ecommerce.ecom.exceptions.ServiceBusyException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BoundedPasswordEncoderTest {
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private BoundedPasswordEncoder encoder;
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		if (encoder != null) {
+			encoder.destroy();
+		}
+	}
+
+	@Test
+	void hashesAndVerifiesThroughTheDelegate() {
+		encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 2, 4, 5_000L);
+
+		String hash = encoder.encode("secret");
+
+		assertTrue(encoder.matches("secret", hash));
+		assertFalse(encoder.matches("wrong", hash));
+	}
+
+	@Test
+	void fullQueueFailsFastWithServiceBusy() throws Exception {
+		CountDownLatch running = new CountDownLatch(1);
+		encoder = new BoundedPasswordEncoder(blockingDelegate(running), 1, 1, 5_000L);
+
+		// One hash occupies the only thread and a second fills the queue
+		CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> encoder.encode("first"));
+		assertTrue(running.await(5, TimeUnit.SECONDS));
+		CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("queued"));
+		waitForQueuedTask();
+
+		assertThrows(ServiceBusyException.class, () -> encoder.encode("rejected"));
+
+		release.countDown();
+		assertEquals("hash", first.get(5, TimeUnit.SECONDS));
+		assertEquals("hash", queued.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void slowHashTimesOutWithServiceBusy() {
+		encoder = new BoundedPasswordEncoder(blockingDelegate(new CountDownLatch(1)), 1, 1, 50L);
+
+		assertThrows(ServiceBusyException.class, () -> encoder.matches("secret", "hash"));
+	}
+
+	@Test
+	void successfulLoginUpgradesAWeakerHash() {
+		String weakHash = new BCryptPasswordEncoder(4).encode("secret");
+		encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(5), 1, 4, 5_000L);
+		UserDetailsPasswordService passwordService = mock(UserDetailsPasswordService.class);
+		when(passwordService.updatePassword(any(), anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+
+		DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+		provider.setPasswordEncoder(encoder);
+		provider.setUserDetailsService(username -> User.withUsername(username).password(weakHash).roles("USER").build());
+		provider.setUserDetailsPasswordService(passwordService);
+
+		assertTrue(encoder.upgradeEncoding(weakHash));
+		provider.authenticate(new UsernamePasswordAuthenticationToken("alice", "secret"));
+
+		verify(passwordService).updatePassword(any(UserDetails.class),
+				argThat(newHash -> newHash.startsWith("$2a$05$") && encoder.matches("secret", newHash)));
+	}
+
+	private PasswordEncoder blockingDelegate(CountDownLatch running) {
+		PasswordEncoder delegate = mock(PasswordEncoder.class);
+		when(delegate.encode(any())).thenAnswer(invocation -> {
+			running.countDown();
+			release.await(10, TimeUnit.SECONDS);
+			return "hash";
+		});
+		when(delegate.matches(any(), anyString())).thenAnswer(invocation -> {
+			running.countDown();
+			release.await(10, TimeUnit.SECONDS);
+			return true;
+		});
+		return delegate;
+	}
+
+	private void waitForQueuedTask() throws InterruptedException {
+		ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(encoder, "executor");
+		long deadline = System.currentTimeMillis() + 5_000L;
+		while (executor.getQueue().isEmpty() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+	}
+}
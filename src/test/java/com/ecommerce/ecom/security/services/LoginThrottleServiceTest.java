@@ -0,0 +1,97 @@
+package com.ecommerce.ecom.security.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoginThrottleServiceTest {
+
+	private final LoginThrottleService throttle = new LoginThrottleService(60_000L, 2, 3, 1024);
+
+	@Test
+	void rejectedUsernameAttemptsDoNotUseUpTheIpBudget() {
+		assertTrue(throttle.tryAcquire("alice", "10.0.0.1"));
+		assertTrue(throttle.tryAcquire("alice", "10.0.0.1"));
+		for (int i = 0; i < 5; i++) {
+			assertFalse(throttle.tryAcquire("Alice ", "10.0.0.1"));
+		}
+
+		assertTrue(throttle.tryAcquire("bob", "10.0.0.1"));
+		assertFalse(throttle.tryAcquire("carol", "10.0.0.1"));
+	}
+
+	@Test
+	void rejectedIpAttemptsDoNotUseUpTheUsernameBudget() {
+		for (int i = 0; i < 3; i++) {
+			assertTrue(throttle.tryAcquire("user" + i, "10.0.0.2"));
+		}
+		assertFalse(throttle.tryAcquire("alice", "10.0.0.2"));
+		assertFalse(throttle.tryAcquire("alice", "10.0.0.2"));
+
+		assertTrue(throttle.tryAcquire("alice", "10.0.0.3"));
+		assertTrue(throttle.tryAcquire("alice", "10.0.0.3"));
+	}
+
+	@Test
+	void concurrentBurstForOneUsernameAdmitsAtMostTheLimit() throws Exception {
+		LoginThrottleService throttle = new LoginThrottleService(60_000L, 5, 1_000, 1024);
+
+		assertEquals(5, admittedInBurst(64, i -> throttle.tryAcquire("alice", "10.1.0." + i)));
+	}
+
+	@Test
+	void concurrentBurstFromOneIpAdmitsAtMostTheLimit() throws Exception {
+		LoginThrottleService throttle = new LoginThrottleService(60_000L, 1_000, 5, 1024);
+
+		assertEquals(5, admittedInBurst(64, i -> throttle.tryAcquire("user" + i, "10.2.0.1")));
+	}
+
+	@Test
+	void retryAfterReflectsTheLimitThatRejected() {
+		LoginThrottleService throttle = new LoginThrottleService(60_000L, 2, 3, 1024);
+		throttle.tryAcquire("alice", "10.0.0.4");
+		throttle.tryAcquire("alice", "10.0.0.4");
+
+		long retryAfter = throttle.retryAfterSeconds("alice", "10.0.0.4");
+		assertTrue(retryAfter >= 1 && retryAfter <= 120);
+		assertEquals(1, throttle.retryAfterSeconds("bob", "10.0.0.5"));
+	}
+
+	private static int admittedInBurst(int attempts, IntPredicate attempt) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(16);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger admitted = new AtomicInteger();
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < attempts; i++) {
+				int n = i;
+				futures.add(pool.submit(() -> {
+					start.await();
+					if (attempt.test(n)) {
+						admitted.incrementAndGet();
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get(10, TimeUnit.SECONDS);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		return admitted.get();
+	}
+}
@@ -0,0 +1,84 @@
+package com.ecommerce.ecom.security.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlidingWindowRateLimiterTest {
+
+	private final AtomicLong now = new AtomicLong(0L);
+
+	private final SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(3, 60_000L, 1024, now::get);
+
+	@Test
+	void rejectsAttemptsOverTheLimit() {
+		assertTrue(limiter.tryAcquire("alice"));
+		assertTrue(limiter.tryAcquire("alice"));
+		assertTrue(limiter.tryAcquire("alice"));
+		assertFalse(limiter.tryAcquire("alice"));
+	}
+
+	@Test
+	void countsKeysIndependently() {
+		for (int i = 0; i < 3; i++) {
+			limiter.tryAcquire("alice");
+		}
+
+		assertFalse(limiter.tryAcquire("alice"));
+		assertTrue(limiter.tryAcquire("bob"));
+	}
+
+	@Test
+	void previousWindowDecaysAsTheWindowSlides() {
+		now.set(120_000L);
+		for (int i = 0; i < 3; i++) {
+			limiter.tryAcquire("alice");
+		}
+
+		// At the start of the next window the previous attempts still count in full
+		now.set(180_000L);
+		assertFalse(limiter.tryAcquire("alice"));
+
+		// Two thirds into the next window only a third of them remain
+		now.set(220_000L);
+		assertTrue(limiter.tryAcquire("alice"));
+	}
+
+	@Test
+	void forgetsAttemptsAfterAnIdleWindow() {
+		for (int i = 0; i < 3; i++) {
+			limiter.tryAcquire("alice");
+		}
+
+		now.addAndGet(150_000L);
+		assertTrue(limiter.tryAcquire("alice"));
+		assertTrue(limiter.tryAcquire("alice"));
+		assertTrue(limiter.tryAcquire("alice"));
+	}
+
+	@Test
+	void retryAfterIsTheTimeUntilTheCountDecaysBelowTheLimit() {
+		now.set(120_000L);
+		for (int i = 0; i < 3; i++) {
+			limiter.tryAcquire("alice");
+		}
+
+		// A full current window only starts decaying once it becomes the previous window
+		now.set(150_000L);
+		assertEquals(31, limiter.retryAfterSeconds("alice"));
+
+		// Four attempts spread over two windows: one this window plus three decaying from the last
+		now.set(180_000L);
+		limiter.record("alice");
+		now.set(190_000L);
+		assertFalse(limiter.hasCapacity("alice"));
+		assertEquals(11, limiter.retryAfterSeconds("alice"));
+
+		now.set(200_001L);
+		assertTrue(limiter.hasCapacity("alice"));
+	}
+}
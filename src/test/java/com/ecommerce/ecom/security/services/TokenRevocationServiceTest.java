@@ -0,0 +1,98 @@
+package com.ecommerce.ecom.security.services;
+
+import com.ecommerce.ecom.model.RevokedToken;
+import com.ecommerce.ecom.repositories.RevokedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenRevocationServiceTest {
+
+	private final RevokedTokenRepository revokedTokenRepository = mock(RevokedTokenRepository.class);
+
+	private final TokenRevocationService service = new TokenRevocationService();
+
+	private final Date inOneHour = Date.from(Instant.now().plus(1, ChronoUnit.HOURS));
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(service, "revokedTokenRepository", revokedTokenRepository);
+		ReflectionTestUtils.setField(service, "expectedRevocations", 1_000L);
+		ReflectionTestUtils.invokeMethod(service, "loadRevokedTokens");
+	}
+
+	@Test
+	void reportsRevokedTokensOnly() {
+		service.revoke("jti-1", inOneHour);
+
+		assertTrue(service.isRevoked("jti-1"));
+		assertFalse(service.isRevoked("jti-2"));
+		assertFalse(service.isRevoked(null));
+	}
+
+	@Test
+	void persistsEachRevocationOnce() {
+		service.revoke("jti-1", inOneHour);
+		service.revoke("jti-1", inOneHour);
+
+		verify(revokedTokenRepository, times(1)).save(any(RevokedToken.class));
+	}
+
+	@Test
+	void loadsPersistedRevocationsOnStartup() {
+		when(revokedTokenRepository.findByExpiresAtAfter(any()))
+				.thenReturn(List.of(new RevokedToken("jti-stored", inOneHour.toInstant())));
+
+		ReflectionTestUtils.invokeMethod(service, "loadRevokedTokens");
+
+		assertTrue(service.isRevoked("jti-stored"));
+	}
+
+	@Test
+	void keepsRevokedTokensAfterTheFilterIsRebuilt() {
+		for (int i = 0; i < 500; i++) {
+			service.revoke("jti-" + i, inOneHour);
+		}
+
+		service.purgeExpired();
+
+		for (int i = 0; i < 500; i++) {
+			assertTrue(service.isRevoked("jti-" + i), "jti-" + i);
+		}
+		assertFalse(service.isRevoked("jti-unrevoked"));
+	}
+
+	@Test
+	void purgesExpiredRevocations() {
+		service.revoke("jti-expired", Date.from(Instant.now().minus(1, ChronoUnit.MINUTES)));
+		service.revoke("jti-live", inOneHour);
+
+		service.purgeExpired();
+
+		Map<String, Long> revokedTokens = revokedTokens();
+		assertEquals(1, revokedTokens.size());
+		assertTrue(revokedTokens.containsKey("jti-live"));
+		assertFalse(service.isRevoked("jti-expired"));
+		verify(revokedTokenRepository).deleteExpired(any(Instant.class));
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Long> revokedTokens() {
+		return (Map<String, Long>) ReflectionTestUtils.getField(service, "revokedTokens");
+	}
+}
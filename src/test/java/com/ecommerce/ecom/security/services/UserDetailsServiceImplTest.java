@@ -0,0 +1,85 @@
+package com.ecommerce.ecom.security.services;
+
+import com.ecommerce.ecom.model.AppRole;
+import com.ecommerce.ecom.model.Role;
+import com.ecommerce.ecom.model.User;
+import com.ecommerce.ecom.repositories.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserDetailsServiceImplTest {
+
+	private final UserRepository userRepository = mock(UserRepository.class);
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final UserDetailsServiceImpl service = new UserDetailsServiceImpl(100, 300);
+
+	private final User alice = new User("alice", "alice@example.com", "old-hash");
+
+	@BeforeEach
+	void setUp() {
+		service.userRepository = userRepository;
+		service.meterRegistry = meterRegistry;
+		service.registerMetrics();
+
+		alice.setUserId(7L);
+		alice.getRoles().add(new Role(AppRole.ROLE_USER));
+		when(userRepository.findByUsername("alice")).thenReturn(Optional.of(alice));
+	}
+
+	@Test
+	void loadsEachUserOnceWhileCached() {
+		UserDetails first = service.loadUserByUsername("alice");
+		UserDetails second = service.loadUserByUsername("alice");
+
+		assertEquals(first, second);
+		assertNotSame(first, second);
+		assertEquals("ROLE_USER", first.getAuthorities().iterator().next().getAuthority());
+		verify(userRepository, times(1)).findByUsername("alice");
+	}
+
+	@Test
+	void evictedUserIsLoadedAgain() {
+		service.loadUserByUsername("alice");
+		alice.setEmail("alice@new.example.com");
+
+		service.evict("alice");
+
+		assertEquals("alice@new.example.com", ((UserDetailsImpl) service.loadUserByUsername("alice")).getEmail());
+		verify(userRepository, times(2)).findByUsername("alice");
+		assertEquals(1.0, meterRegistry.counter("cache.invalidations", "cache", "userDetails").count());
+	}
+
+	@Test
+	void passwordUpgradeEvictsTheCachedPrincipal() {
+		service.loadUserByUsername("alice");
+
+		service.updatePassword(service.loadUserByUsername("alice"), "new-hash");
+
+		assertEquals("new-hash", service.loadUserByUsername("alice").getPassword());
+		verify(userRepository).save(alice);
+	}
+
+	@Test
+	void unknownUserIsNotCached() {
+		when(userRepository.findByUsername("nobody")).thenReturn(Optional.empty());
+
+		assertThrows(UsernameNotFoundException.class, () -> service.loadUserByUsername("nobody"));
+		assertThrows(UsernameNotFoundException.class, () -> service.loadUserByUsername("nobody"));
+		verify(userRepository, times(2)).findByUsername("nobody");
+	}
+}
@@ -0,0 +1,330 @@
+package com.ecommerce.ecom.service;
+
+import com.ecommerce.ecom.exceptions.APIException;
+import com.ecommerce.ecom.exceptions.ServiceBusyException;
+import com.ecommerce.ecom.payload.CartDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CartMutationCoalescerTest {
+
+	private final CartService cartService = mock(CartService.class);
+
+	private final ManualStripe stripe = new ManualStripe();
+
+	private final CartMutationCoalescer coalescer =
+			new CartMutationCoalescer(0L, 1L, 3, 20L, 2.0, 200L, new ScheduledExecutorService[]{stripe});
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(coalescer, "cartService", cartService);
+		ReflectionTestUtils.setField(coalescer, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.invokeMethod(coalescer, "registerMetrics");
+	}
+
+	@Test
+	void mergesClicksQueuedBehindTheFlushIntoOneChange() {
+		CartDTO cart = new CartDTO();
+		when(cartService.applyQuantityChanges(eq(1L), anyMap())).thenReturn(cart);
+
+		List<CartMutationCoalescer.Click> clicks = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			clicks.add(coalescer.enqueue(1L, 7L, 1));
+		}
+		clicks.add(coalescer.enqueue(1L, 7L, -1));
+
+		// An idle cart is flushed at once; the other clicks arrived before the flush ran
+		assertEquals(List.of(0L), stripe.delays());
+		stripe.runAll();
+
+		clicks.forEach(click -> assertSame(cart, click.result.join()));
+		verify(cartService, times(1)).applyQuantityChanges(1L, Map.of(7L, 4));
+	}
+
+	@Test
+	void mergesLinesOfOneCartIntoOneTransaction() {
+		when(cartService.applyQuantityChanges(eq(1L), anyMap())).thenReturn(new CartDTO());
+
+		coalescer.enqueue(1L, 7L, 1);
+		coalescer.enqueue(1L, 8L, 1);
+		coalescer.enqueue(1L, 7L, 1);
+		stripe.runAll();
+
+		verify(cartService, times(1)).applyQuantityChanges(1L, Map.of(7L, 2, 8L, 1));
+	}
+
+	@Test
+	void keepsCartsApart() {
+		when(cartService.applyQuantityChanges(anyLong(), anyMap())).thenReturn(new CartDTO());
+
+		coalescer.enqueue(1L, 7L, 1);
+		coalescer.enqueue(2L, 7L, 1);
+		stripe.runAll();
+
+		verify(cartService).applyQuantityChanges(1L, Map.of(7L, 1));
+		verify(cartService).applyQuantityChanges(2L, Map.of(7L, 1));
+	}
+
+	@Test
+	void passesTheFailureOfASingleClickToItsCaller() {
+		when(cartService.applyQuantityChanges(eq(1L), anyMap()))
+				.thenThrow(new APIException("Cannot add more than available stock (1)"));
+
+		CartMutationCoalescer.Click click = coalescer.enqueue(1L, 7L, 1);
+		stripe.runAll();
+
+		Throwable cause = assertThrows(Exception.class, click.result::join).getCause();
+		assertEquals(APIException.class, cause.getClass());
+		verify(cartService, never()).applyQuantityChange(anyLong(), anyLong(), anyInt());
+	}
+
+	@Test
+	void rejectedMergeIsReplayedClickByClick() {
+		CartDTO afterFirst = new CartDTO();
+		CartDTO afterSecond = new CartDTO();
+		// Two of stock left: the merged +3 is rejected, then the third click alone goes over
+		when(cartService.applyQuantityChanges(eq(1L), anyMap()))
+				.thenThrow(new APIException("Cannot add more than available stock (2)"));
+		when(cartService.applyQuantityChange(1L, 7L, 1))
+				.thenReturn(afterFirst)
+				.thenReturn(afterSecond)
+				.thenThrow(new APIException("Cannot add more than available stock (2)"));
+
+		List<CartMutationCoalescer.Click> clicks = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			clicks.add(coalescer.enqueue(1L, 7L, 1));
+		}
+		stripe.runAll();
+
+		assertSame(afterFirst, clicks.get(0).result.join());
+		assertSame(afterSecond, clicks.get(1).result.join());
+		Throwable cause = assertThrows(Exception.class, clicks.get(2).result::join).getCause();
+		assertEquals(APIException.class, cause.getClass());
+		verify(cartService, times(1)).applyQuantityChanges(1L, Map.of(7L, 3));
+	}
+
+	@Test
+	void timedOutClickIsNeverApplied() {
+		// The stripe never runs before the 1 ms timeout, as when the worker is backed up
+		assertThrows(ServiceBusyException.class, () -> coalescer.changeQuantity(1L, 7L, 1));
+
+		stripe.runAll();
+
+		verify(cartService, never()).applyQuantityChanges(anyLong(), anyMap());
+	}
+
+	@Test
+	void withdrawnClickLeavesTheRestOfItsChange() {
+		when(cartService.applyQuantityChanges(eq(1L), anyMap())).thenReturn(new CartDTO());
+
+		CartMutationCoalescer.Click kept = coalescer.enqueue(1L, 7L, 1);
+		CartMutationCoalescer.Click gaveUp = coalescer.enqueue(1L, 7L, 1);
+		assertTrue(coalescer.withdraw(1L, gaveUp));
+		stripe.runAll();
+
+		verify(cartService).applyQuantityChanges(1L, Map.of(7L, 1));
+		kept.result.join();
+		assertFalse(gaveUp.result.isDone());
+	}
+
+	@Test
+	void clickCannotBeWithdrawnOnceFlushed() {
+		when(cartService.applyQuantityChanges(eq(1L), anyMap())).thenReturn(new CartDTO());
+
+		CartMutationCoalescer.Click click = coalescer.enqueue(1L, 7L, 1);
+		stripe.runAll();
+
+		assertFalse(coalescer.withdraw(1L, click));
+		assertTrue(click.result.isDone());
+	}
+
+	@Test
+	void claimedClickWaitsOnlyABoundedTime() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(cartService.applyQuantityChanges(eq(1L), anyMap())).thenAnswer(invocation -> {
+			started.countDown();
+			release.await(10, TimeUnit.SECONDS);
+			return new CartDTO();
+		});
+		ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor();
+		CartMutationCoalescer slow = new CartMutationCoalescer(0L, 200L, 3, 20L, 2.0, 200L,
+				new ScheduledExecutorService[]{worker});
+		ReflectionTestUtils.setField(slow, "cartService", cartService);
+		ReflectionTestUtils.setField(slow, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.invokeMethod(slow, "registerMetrics");
+
+		try {
+			ServiceBusyException e = assertThrows(ServiceBusyException.class, () -> slow.changeQuantity(1L, 7L, 1));
+			assertTrue(started.await(0, TimeUnit.SECONDS));
+			assertTrue(e.getMessage().contains("still in progress"), e.getMessage());
+		} finally {
+			release.countDown();
+			worker.shutdownNow();
+		}
+	}
+
+	@Test
+	void conflictIsRescheduledWithBackoffInsteadOfBlockingTheStripe() {
+		CartDTO cart = new CartDTO();
+		when(cartService.applyQuantityChanges(1L, Map.of(7L, 2)))
+				.thenThrow(new ObjectOptimisticLockingFailureException("Cart", 1L))
+				.thenReturn(cart);
+		when(cartService.applyQuantityChanges(2L, Map.of(9L, 1))).thenReturn(new CartDTO());
+
+		CartMutationCoalescer.Click first = coalescer.enqueue(1L, 7L, 1);
+		CartMutationCoalescer.Click second = coalescer.enqueue(1L, 7L, 1);
+		CartMutationCoalescer.Click otherCart = coalescer.enqueue(2L, 9L, 1);
+
+		stripe.runNext();
+		assertFalse(first.result.isDone());
+
+		// The other cart on the same stripe runs before the backoff elapses
+		stripe.runNext();
+		assertTrue(otherCart.result.isDone());
+
+		long backoff = stripe.delays().get(0);
+		assertTrue(backoff >= 20L && backoff <= 200L, "backoff " + backoff);
+		stripe.runAll();
+
+		assertSame(cart, first.result.join());
+		assertSame(cart, second.result.join());
+		verify(cartService, times(2)).applyQuantityChanges(1L, Map.of(7L, 2));
+	}
+
+	@Test
+	void givesUpAfterMaxAttempts() {
+		when(cartService.applyQuantityChanges(eq(1L), anyMap()))
+				.thenThrow(new ObjectOptimisticLockingFailureException("Cart", 1L));
+
+		CartMutationCoalescer.Click click = coalescer.enqueue(1L, 7L, 1);
+		stripe.runAll();
+
+		Throwable cause = assertThrows(Exception.class, click.result::join).getCause();
+		assertEquals(ObjectOptimisticLockingFailureException.class, cause.getClass());
+		verify(cartService, times(3)).applyQuantityChanges(1L, Map.of(7L, 1));
+	}
+
+	@Test
+	void shutdownReleasesQueuedWaiters() {
+		CartMutationCoalescer.Click click = coalescer.enqueue(1L, 7L, 1);
+
+		coalescer.destroy();
+
+		Throwable cause = assertThrows(Exception.class, click.result::join).getCause();
+		assertEquals(ServiceBusyException.class, cause.getClass());
+		assertThrows(ServiceBusyException.class, () -> coalescer.enqueue(1L, 7L, 1));
+		verify(cartService, never()).applyQuantityChanges(anyLong(), anyMap());
+	}
+
+	/**
+	 * Runs scheduled tasks only when the test asks, in submission order, and records their delays.
+	 */
+	private static class ManualStripe extends AbstractExecutorService implements ScheduledExecutorService {
+
+		private final Deque<Runnable> tasks = new ArrayDeque<>();
+
+		private final Deque<Long> delays = new ArrayDeque<>();
+
+		List<Long> delays() {
+			return new ArrayList<>(delays);
+		}
+
+		void runNext() {
+			delays.poll();
+			tasks.poll().run();
+		}
+
+		void runAll() {
+			while (!tasks.isEmpty()) {
+				runNext();
+			}
+		}
+
+		@Override
+		public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+			tasks.add(command);
+			delays.add(unit.toMillis(delay));
+			// The coalescer never uses the handle
+			return null;
+		}
+
+		@Override
+		public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void execute(Runnable command) {
+			schedule(command, 0, TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public void shutdown() {
+			tasks.clear();
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			List<Runnable> pending = new ArrayList<>(tasks);
+			tasks.clear();
+			return pending;
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return false;
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return false;
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) {
+			return true;
+		}
+	}
+}
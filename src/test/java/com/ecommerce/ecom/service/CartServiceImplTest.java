@@ -0,0 +1,357 @@
+package com.ecommerce.ecom.service;
+
+import com.ecommerce.ecom.config.AppConfig;
+import com.ecommerce.ecom.config.AppConstants;
+import com.ecommerce.ecom.exceptions.APIException;
+import com.ecommerce.ecom.model.Cart;
+import com.ecommerce.ecom.model.CartItem;
+import com.ecommerce.ecom.model.Order;
+import com.ecommerce.ecom.model.Product;
+import com.ecommerce.ecom.model.User;
+import com.ecommerce.ecom.payload.CartDTO;
+import com.ecommerce.ecom.payload.CartOperationDTO;
+import com.ecommerce.ecom.repositories.CartItemRepository;
+import com.ecommerce.ecom.repositories.CartRepository;
+import com.ecommerce.ecom.repositories.OrderRepository;
+import com.ecommerce.ecom.repositories.ProductRepository;
+import com.ecommerce.ecom.repositories.UserRepository;
+import com.ecommerce.ecom.util.AuthUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the cart service against H2 with real transactions, optimistic locking and retries.
+ */
+@DataJpaTest(properties = {
+		"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.show-sql=false",
+		"spring.app.cartRetry.maxAttempts=100",
+		"spring.app.cartRetry.initialDelayMs=1",
+		"spring.app.cartRetry.maxDelayMs=20"
+})
+@Import({AppConfig.class, CartServiceImpl.class, CartRetryListener.class, CartServiceImplTest.Metrics.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CartServiceImplTest {
+
+	private static final double PRICE = 12.5;
+
+	@Autowired
+	private CartService cartService;
+
+	@Autowired
+	private CartRepository cartRepository;
+
+	@Autowired
+	private CartItemRepository cartItemRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@MockBean
+	private AuthUtil authUtil;
+
+	private User user;
+
+	private Product product;
+
+	private Cart cart;
+
+	@BeforeEach
+	void setUp() {
+		user = userRepository.save(new User("shopper", "shopper@example.com", "password"));
+		product = productRepository.save(newProduct("Lamp", 1_000, PRICE));
+
+		Cart newCart = new Cart();
+		newCart.setUser(user);
+		newCart.setTotalPrice(PRICE);
+		cart = cartRepository.save(newCart);
+
+		CartItem item = new CartItem();
+		item.setCart(cart);
+		item.setProduct(product);
+		item.setQuantity(1);
+		item.setProductPrice(PRICE);
+		cartItemRepository.save(item);
+	}
+
+	@AfterEach
+	void tearDown() {
+		orderRepository.deleteAllInBatch();
+		cartItemRepository.deleteAllInBatch();
+		cartRepository.deleteAllInBatch();
+		productRepository.deleteAllInBatch();
+		userRepository.deleteAllInBatch();
+	}
+
+	@Test
+	void concurrentQuantityChangesOnOneCartAreAllApplied() {
+		when(authUtil.loggedInEmail()).thenReturn(user.getEmail());
+		int threads = 8;
+		int changesPerThread = 10;
+		ExecutorService clients = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<CompletableFuture<Void>> changes = new ArrayList<>();
+
+		try {
+			for (int i = 0; i < threads; i++) {
+				changes.add(CompletableFuture.runAsync(() -> {
+					await(start);
+					for (int j = 0; j < changesPerThread; j++) {
+						cartService.updateProductQuantityInCart(product.getProductId(), "increase");
+					}
+				}, clients));
+			}
+			start.countDown();
+			CompletableFuture.allOf(changes.toArray(CompletableFuture[]::new)).join();
+		} finally {
+			clients.shutdownNow();
+		}
+
+		int expectedQuantity = 1 + threads * changesPerThread;
+		CartItem item = cartItemRepository.findCartItemByProductIdAndCartId(cart.getCartId(), product.getProductId());
+		assertEquals(expectedQuantity, item.getQuantity());
+		assertEquals(expectedQuantity * PRICE, cartRepository.findById(cart.getCartId()).orElseThrow().getTotalPrice(), 0.001);
+		// The threads really did collide and were retried rather than serialized by chance
+		assertTrue(meterRegistry.counter("cart.mutation.conflicts").count() > 0);
+	}
+
+	@Test
+	void batchAppliesMixedOperationsAndRecalculatesTheTotal() {
+		when(authUtil.loggedInEmail()).thenReturn(user.getEmail());
+		Product chair = productRepository.save(newProduct("Chair", 10, 40.0));
+		Product desk = productRepository.save(newProduct("Desk", 10, 99.0));
+
+		CartDTO cartDTO = cartService.applyCartOperations(List.of(
+				new CartOperationDTO("add", product.getProductId(), 2),
+				new CartOperationDTO("add", chair.getProductId(), 1),
+				new CartOperationDTO("set", chair.getProductId(), 4),
+				new CartOperationDTO("add", desk.getProductId(), 1),
+				new CartOperationDTO("remove", desk.getProductId(), null)));
+
+		double expectedTotal = 3 * PRICE + 4 * 40.0;
+		assertEquals(expectedTotal, cartDTO.getTotalPrice(), 0.001);
+		assertEquals(expectedTotal, cartRepository.findById(cart.getCartId()).orElseThrow().getTotalPrice(), 0.001);
+		assertEquals(3, cartItemRepository.findCartItemByProductIdAndCartId(cart.getCartId(), product.getProductId()).getQuantity());
+		assertEquals(4, cartItemRepository.findCartItemByProductIdAndCartId(cart.getCartId(), chair.getProductId()).getQuantity());
+		assertNull(cartItemRepository.findCartItemByProductIdAndCartId(cart.getCartId(), desk.getProductId()));
+	}
+
+	@Test
+	void batchIsRolledBackWhenOneOperationFails() {
+		when(authUtil.loggedInEmail()).thenReturn(user.getEmail());
+		Product chair = productRepository.save(newProduct("Chair", 2, 40.0));
+
+		assertThrows(APIException.class, () -> cartService.applyCartOperations(List.of(
+				new CartOperationDTO("add", product.getProductId(), 2),
+				new CartOperationDTO("add", chair.getProductId(), 3))));
+
+		assertEquals(1, cartItemRepository.findCartItemByProductIdAndCartId(cart.getCartId(), product.getProductId()).getQuantity());
+		assertNull(cartItemRepository.findCartItemByProductIdAndCartId(cart.getCartId(), chair.getProductId()));
+		assertEquals(PRICE, cartRepository.findById(cart.getCartId()).orElseThrow().getTotalPrice(), 0.001);
+	}
+
+	@Test
+	void batchThatEmptiesTheCartDeletesIt() {
+		when(authUtil.loggedInEmail()).thenReturn(user.getEmail());
+
+		CartDTO cartDTO = cartService.applyCartOperations(List.of(
+				new CartOperationDTO("remove", product.getProductId(), null)));
+
+		assertTrue(cartDTO.getProducts().isEmpty());
+		assertFalse(cartRepository.findById(cart.getCartId()).isPresent());
+		assertEquals(0, cartItemRepository.count());
+	}
+
+	@Test
+	void addProductToCartInsertsThenIncrementsOneLine() {
+		when(authUtil.loggedInEmail()).thenReturn(user.getEmail());
+		Product chair = productRepository.save(newProduct("Chair", 5, 40.0));
+
+		cartService.addProductToCart(chair.getProductId(), 2);
+		CartDTO cartDTO = cartService.addProductToCart(chair.getProductId(), 1);
+
+		CartItem line = cartItemRepository.findCartItemByProductIdAndCartId(cart.getCartId(), chair.getProductId());
+		assertEquals(3, line.getQuantity());
+		assertEquals(2, cartItemRepository.countByCartId(cart.getCartId()));
+		assertEquals(PRICE + 120.0, cartDTO.getTotalPrice(), 0.001);
+		assertEquals(PRICE + 120.0, cartRepository.findById(cart.getCartId()).orElseThrow().getTotalPrice(), 0.001);
+		assertThrows(APIException.class, () -> cartService.addProductToCart(chair.getProductId(), 3));
+	}
+
+	@Test
+	void mergedQuantityChangesApplyToEveryLineInOneTransaction() {
+		Product chair = productRepository.save(newProduct("Chair", 10, 40.0));
+		CartItem chairItem = new CartItem();
+		chairItem.setCart(cart);
+		chairItem.setProduct(chair);
+		chairItem.setQuantity(2);
+		chairItem.setProductPrice(40.0);
+		cartItemRepository.save(chairItem);
+		cart.setTotalPrice(PRICE + 80.0);
+		cartRepository.save(cart);
+
+		Map<Long, Integer> deltas = new LinkedHashMap<>();
+		deltas.put(product.getProductId(), 3);
+		deltas.put(chair.getProductId(), -1);
+		cartService.applyQuantityChanges(cart.getCartId(), deltas);
+
+		assertEquals(4, cartItemRepository.findCartItemByProductIdAndCartId(cart.getCartId(), product.getProductId()).getQuantity());
+		assertEquals(1, cartItemRepository.findCartItemByProductIdAndCartId(cart.getCartId(), chair.getProductId()).getQuantity());
+		assertEquals(4 * PRICE + 40.0, cartRepository.findById(cart.getCartId()).orElseThrow().getTotalPrice(), 0.001);
+	}
+
+	@Test
+	void mergedIncreaseBeyondStockIsRejectedNotClamped() {
+		Product scarce = productRepository.save(newProduct("Vase", 3, PRICE));
+		CartItem item = cartItemRepository.findCartItemByProductIdAndCartId(cart.getCartId(), product.getProductId());
+		item.setProduct(scarce);
+		cartItemRepository.save(item);
+
+		assertThrows(APIException.class, () -> cartService.applyQuantityChanges(cart.getCartId(), Map.of(scarce.getProductId(), 5)));
+
+		assertEquals(1, cartItemRepository.findCartItemByProductIdAndCartId(cart.getCartId(), scarce.getProductId()).getQuantity());
+		cartService.applyQuantityChanges(cart.getCartId(), Map.of(scarce.getProductId(), 2));
+		assertEquals(3, cartItemRepository.findCartItemByProductIdAndCartId(cart.getCartId(), scarce.getProductId()).getQuantity());
+	}
+
+	@Test
+	void cartIsFrozenWhileAnOrderFromItIsPending() {
+		when(authUtil.loggedInEmail()).thenReturn(user.getEmail());
+		Order pending = new Order();
+		pending.setEmail(user.getEmail());
+		pending.setOrderDate(LocalDate.now());
+		pending.setOrderStatus(AppConstants.ORDER_STATUS_PENDING);
+		orderRepository.save(pending);
+
+		assertThrows(APIException.class, () -> cartService.applyQuantityChange(cart.getCartId(), product.getProductId(), 1));
+		assertThrows(APIException.class, () -> cartService.updateProductQuantityInCart(product.getProductId(), "increase"));
+		assertThrows(APIException.class, () -> cartService.applyCartOperations(List.of(
+				new CartOperationDTO("remove", product.getProductId(), null))));
+		assertThrows(APIException.class, () -> cartService.deleteProductFromCart(cart.getCartId(), product.getProductId()));
+
+		assertEquals(1, cartItemRepository.findCartItemByProductIdAndCartId(cart.getCartId(), product.getProductId()).getQuantity());
+	}
+
+	@Test
+	void readingTheCartWritesNothing() {
+		// A repriced product leaves a stale line the read must show at the new price without persisting it
+		reprice(20.0);
+		Long version = cartRepository.findById(cart.getCartId()).orElseThrow().getVersion();
+
+		CartDTO view = cartService.getCart(user.getEmail(), cart.getCartId());
+
+		assertEquals(20.0, view.getTotalPrice(), 0.001);
+		Cart stored = cartRepository.findById(cart.getCartId()).orElseThrow();
+		assertEquals(version, stored.getVersion());
+		assertEquals(PRICE, stored.getTotalPrice(), 0.001);
+		assertEquals(PRICE, cartItemRepository.findCartItemByProductIdAndCartId(cart.getCartId(), product.getProductId())
+				.getProductPrice(), 0.001);
+	}
+
+	@Test
+	void staleLineIsRepricedOnTheNextChange() {
+		when(authUtil.loggedInEmail()).thenReturn(user.getEmail());
+		reprice(20.0);
+
+		cartService.updateProductQuantityInCart(product.getProductId(), "increase");
+
+		CartItem item = cartItemRepository.findCartItemByProductIdAndCartId(cart.getCartId(), product.getProductId());
+		assertEquals(20.0, item.getProductPrice(), 0.001);
+		assertEquals(product.getPriceVersion(), item.getPriceVersion());
+		assertEquals(2 * 20.0, cartRepository.findById(cart.getCartId()).orElseThrow().getTotalPrice(), 0.001);
+	}
+
+	@Test
+	void quantityChangesKeepTheStoredTotalInStep() {
+		when(authUtil.loggedInEmail()).thenReturn(user.getEmail());
+
+		cartService.updateProductQuantityInCart(product.getProductId(), "increase");
+		cartService.updateProductQuantityInCart(product.getProductId(), "increase");
+		cartService.updateProductQuantityInCart(product.getProductId(), "decrease");
+
+		assertEquals(2 * PRICE, cartRepository.findById(cart.getCartId()).orElseThrow().getTotalPrice(), 0.001);
+	}
+
+	@Test
+	void reconcileRewritesOnlyDriftedTotals() {
+		Cart drifted = cartRepository.findById(cart.getCartId()).orElseThrow();
+		drifted.setTotalPrice(99.0);
+		cartRepository.save(drifted);
+
+		assertEquals(1, cartService.reconcileCartTotals());
+		assertEquals(PRICE, cartRepository.findById(cart.getCartId()).orElseThrow().getTotalPrice(), 0.001);
+		assertEquals(0, cartService.reconcileCartTotals());
+	}
+
+	// What ProductServiceImpl.updateProduct does to a product whose price changes
+	private void reprice(double specialPrice) {
+		product.setSpecialPrice(specialPrice);
+		product.setPriceVersion(product.getPriceVersion() + 1);
+		product = productRepository.save(product);
+	}
+
+	private Product newProduct(String name, int stock, double price) {
+		Product newProduct = new Product();
+		newProduct.setProductName(name);
+		newProduct.setDescription("A product in the cart");
+		newProduct.setQuantity(stock);
+		newProduct.setPrice(price);
+		newProduct.setSpecialPrice(price);
+		return newProduct;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@TestConfiguration
+	static class Metrics {
+		@Bean
+		MeterRegistry meterRegistry() {
+			return new SimpleMeterRegistry();
+		}
+	}
+}
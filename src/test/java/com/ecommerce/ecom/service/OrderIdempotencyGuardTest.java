@@ -0,0 +1,136 @@
+package com.ecommerce.ecom.service;
+
+import com.ecommerce.ecom.config.AppConstants;
+import com.ecommerce.ecom.payload.OrderDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrderIdempotencyGuardTest {
+
+	private final OrderService orderService = mock(OrderService.class);
+
+	private final OrderIdempotencyGuard guard = new OrderIdempotencyGuard(100, 60, 5_000L);
+
+	private final ExecutorService clients = Executors.newFixedThreadPool(4);
+
+	private final AtomicInteger placed = new AtomicInteger();
+
+	// Stands in for the orders table
+	private final Map<Long, OrderDTO> orders = new ConcurrentHashMap<>();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(guard, "orderService", orderService);
+		when(orderService.findOrderByIdempotencyKey(anyString(), anyString())).thenReturn(Optional.empty());
+		when(orderService.findOrderById(anyLong()))
+				.thenAnswer(invocation -> Optional.ofNullable(orders.get(invocation.<Long>getArgument(0))));
+	}
+
+	@AfterEach
+	void tearDown() {
+		clients.shutdownNow();
+	}
+
+	private OrderDTO placeOrder() {
+		OrderDTO order = new OrderDTO();
+		order.setOrderId((long) placed.incrementAndGet());
+		order.setOrderStatus(AppConstants.ORDER_STATUS_PENDING);
+		orders.put(order.getOrderId(), order);
+		return order;
+	}
+
+	@Test
+	void returnsTheOriginalOrderOnRepeat() {
+		OrderDTO first = guard.placeOnce("a@example.com", "key-1", this::placeOrder);
+		OrderDTO second = guard.placeOnce("a@example.com", "key-1", this::placeOrder);
+
+		assertSame(first, second);
+		assertEquals(1, placed.get());
+	}
+
+	@Test
+	void scopesKeysPerUser() {
+		OrderDTO first = guard.placeOnce("a@example.com", "key-1", this::placeOrder);
+		OrderDTO second = guard.placeOnce("b@example.com", "key-1", this::placeOrder);
+
+		assertNotSame(first, second);
+		assertEquals(2, placed.get());
+	}
+
+	@Test
+	void concurrentDuplicatesWaitForTheInFlightOrder() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		List<CompletableFuture<OrderDTO>> results = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			results.add(CompletableFuture.supplyAsync(() -> guard.placeOnce("a@example.com", "key-1", () -> {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return placeOrder();
+			}), clients));
+		}
+
+		Thread.sleep(100);
+		release.countDown();
+
+		OrderDTO first = results.get(0).join();
+		results.forEach(result -> assertSame(first, result.join()));
+		assertEquals(1, placed.get());
+	}
+
+	@Test
+	void repeatSeesTheCurrentStatusOfAPendingOrder() {
+		OrderDTO pending = guard.placeOnce("a@example.com", "key-1", this::placeOrder);
+
+		OrderDTO completed = new OrderDTO();
+		completed.setOrderId(pending.getOrderId());
+		completed.setOrderStatus(AppConstants.ORDER_STATUS_PLACED);
+		orders.put(completed.getOrderId(), completed);
+
+		assertEquals(AppConstants.ORDER_STATUS_PLACED,
+				guard.placeOnce("a@example.com", "key-1", this::placeOrder).getOrderStatus());
+		assertEquals(1, placed.get());
+	}
+
+	@Test
+	void placesAgainOnceTheRememberedOrderIsDiscarded() {
+		OrderDTO discarded = guard.placeOnce("a@example.com", "key-1", this::placeOrder);
+		orders.remove(discarded.getOrderId());
+
+		OrderDTO retried = guard.placeOnce("a@example.com", "key-1", this::placeOrder);
+
+		assertNotSame(discarded, retried);
+		assertEquals(2, placed.get());
+	}
+
+	@Test
+	void placesEveryOrderWithoutAKey() {
+		guard.placeOnce("a@example.com", null, this::placeOrder);
+		guard.placeOnce("a@example.com", null, this::placeOrder);
+
+		assertEquals(2, placed.get());
+	}
+}
@@ -0,0 +1,142 @@
+package com.ecommerce.ecom.service;
+
+import com.ecommerce.ecom.exceptions.APIException;
+import com.ecommerce.ecom.exceptions.ServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderIntakeQueueTest {
+
+	private final OrderService orderService = mock(OrderService.class);
+
+	private final OrderIntakeQueue queue = new OrderIntakeQueue(1, 1, 5_000L, 600_000L);
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(queue, "orderService", orderService);
+		ReflectionTestUtils.setField(queue, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.invokeMethod(queue, "registerMetrics");
+	}
+
+	@AfterEach
+	void tearDown() {
+		queue.destroy();
+	}
+
+	@Test
+	void completesSubmittedOrderOnWorker() {
+		queue.submit(1L);
+
+		verify(orderService, timeout(5_000)).completePendingOrder(1L);
+		verify(orderService, never()).markOrderFailed(eq(1L), anyString());
+	}
+
+	@Test
+	void marksOrderFailedWhenCompletionThrows() {
+		doThrow(new APIException("Not enough stock available for product: Lamp"))
+				.when(orderService).completePendingOrder(2L);
+
+		queue.submit(2L);
+
+		verify(orderService, timeout(5_000))
+				.markOrderFailed(2L, "Not enough stock available for product: Lamp");
+	}
+
+	@Test
+	void discardsPendingOrderWhenQueueIsFull() throws InterruptedException {
+		CountDownLatch workerBusy = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			workerBusy.countDown();
+			release.await();
+			return null;
+		}).when(orderService).completePendingOrder(1L);
+
+		queue.submit(1L);
+		assertTrue(workerBusy.await(5, TimeUnit.SECONDS));
+		queue.submit(2L);
+
+		assertThrows(ServiceBusyException.class, () -> queue.submit(3L));
+		verify(orderService).discardPendingOrder(3L);
+
+		release.countDown();
+		verify(orderService, timeout(5_000)).completePendingOrder(2L);
+	}
+
+	@Test
+	void drainsQueuedOrdersOnShutdown() throws InterruptedException {
+		CountDownLatch workerBusy = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			workerBusy.countDown();
+			release.await();
+			return null;
+		}).when(orderService).completePendingOrder(1L);
+
+		queue.submit(1L);
+		assertTrue(workerBusy.await(5, TimeUnit.SECONDS));
+		queue.submit(2L);
+
+		Thread shutdown = new Thread(queue::destroy);
+		shutdown.start();
+		release.countDown();
+		shutdown.join(5_000);
+
+		// Neither the running order was interrupted nor the queued one dropped
+		verify(orderService).completePendingOrder(2L);
+		verify(orderService, never()).markOrderFailed(anyLong(), anyString());
+	}
+
+	@Test
+	void requeuesOrdersStuckInPending() {
+		when(orderService.findStalePendingOrderIds(any())).thenReturn(List.of(5L, 6L));
+
+		assertEquals(2, queue.requeueStalePendingOrders());
+
+		verify(orderService, timeout(5_000)).completePendingOrder(5L);
+		verify(orderService, timeout(5_000)).completePendingOrder(6L);
+	}
+
+	@Test
+	void sweepKeepsStaleOrdersWhenQueueIsFull() throws InterruptedException {
+		CountDownLatch workerBusy = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			workerBusy.countDown();
+			release.await();
+			return null;
+		}).when(orderService).completePendingOrder(1L);
+		when(orderService.findStalePendingOrderIds(any())).thenReturn(List.of(7L, 8L));
+
+		queue.submit(1L);
+		assertTrue(workerBusy.await(5, TimeUnit.SECONDS));
+
+		assertEquals(1, queue.requeueStalePendingOrders());
+		verify(orderService, never()).discardPendingOrder(anyLong());
+
+		release.countDown();
+		verify(orderService, timeout(5_000)).completePendingOrder(7L);
+	}
+}
@@ -0,0 +1,313 @@
+package com.ecommerce.ecom.service;
+
+import com.ecommerce.ecom.config.AppConfig;
+import com.ecommerce.ecom.config.AppConstants;
+import com.ecommerce.ecom.exceptions.APIException;
+import com.ecommerce.ecom.model.AppRole;
+import com.ecommerce.ecom.model.Address;
+import com.ecommerce.ecom.model.Cart;
+import com.ecommerce.ecom.model.CartItem;
+import com.ecommerce.ecom.model.Category;
+import com.ecommerce.ecom.model.Order;
+import com.ecommerce.ecom.model.Product;
+import com.ecommerce.ecom.model.Role;
+import com.ecommerce.ecom.model.User;
+import com.ecommerce.ecom.payload.OrderDTO;
+import com.ecommerce.ecom.util.AuthUtil;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Pins the number of statements a checkout sends to the database, whatever the size of the cart,
+ * and the checks a cancellation or a seller's status update goes through.
+ */
+@DataJpaTest(properties = {
+		"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.show-sql=false",
+		"spring.jpa.properties.hibernate.jdbc.batch_size=50",
+		"spring.jpa.properties.hibernate.order_inserts=true"
+})
+@Import({AppConfig.class, OrderServiceImpl.class, CartServiceImpl.class, OrderServiceImplTest.StatementCounting.class})
+@RecordApplicationEvents
+class OrderServiceImplTest {
+
+	// Locked cart, pending order check, its user, its items with products, address, stock decrement
+	// batch, cart item delete, payment, order, order item batch and cart delete
+	private static final int CHECKOUT_STATEMENT_BUDGET = 11;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@MockBean
+	private AuthUtil authUtil;
+
+	private Category category;
+
+	@BeforeEach
+	void setUp() {
+		category = new Category();
+		category.setCategoryName("Kitchen");
+		entityManager.persist(category);
+	}
+
+	@Test
+	void checkoutStatementCountDoesNotGrowWithTheCart() {
+		Long singleLineAddress = fillCart("one", 1);
+		Long twentyLineAddress = fillCart("twenty", 20);
+
+		int singleLine = statementsToCheckout("one", singleLineAddress, 1);
+		int twentyLines = statementsToCheckout("twenty", twentyLineAddress, 20);
+
+		assertEquals(singleLine, twentyLines);
+		assertEquals(CHECKOUT_STATEMENT_BUDGET, twentyLines);
+	}
+
+	@Test
+	void completesPendingOrderFromTheLockedCart() {
+		Long addressId = fillCart("queued", 3);
+
+		OrderDTO pending = orderService.createPendingOrder("queued@example.com", addressId, "card", "stripe",
+				"pg-queued", "succeeded", "ok", null);
+		orderService.completePendingOrder(pending.getOrderId());
+		entityManager.flush();
+		entityManager.clear();
+
+		Order order = entityManager.find(Order.class, pending.getOrderId());
+		assertEquals(AppConstants.ORDER_STATUS_PLACED, order.getOrderStatus());
+		assertEquals(3, order.getOrderItems().size());
+		order.getOrderItems().forEach(item -> assertEquals(9, item.getProduct().getQuantity()));
+	}
+
+	@Test
+	void checkoutIsRejectedWhileAnEarlierOrderIsPending() {
+		Long addressId = fillCart("waiting", 2);
+		orderService.createPendingOrder("waiting@example.com", addressId, "card", "stripe",
+				"pg-waiting", "succeeded", "ok", null);
+
+		assertThrows(APIException.class, () -> orderService.placeOrder("waiting@example.com", addressId, "card",
+				"stripe", "pg-waiting-2", "succeeded", "ok", null));
+		assertThrows(APIException.class, () -> orderService.createPendingOrder("waiting@example.com", addressId,
+				"card", "stripe", "pg-waiting-3", "succeeded", "ok", null));
+	}
+
+	@Test
+	void customerCancelsTheirPlacedOrder(ApplicationEvents events) {
+		Long orderId = placedOrder("regretful", null);
+
+		orderService.cancelOrder(orderId, "regretful@example.com");
+		entityManager.flush();
+		entityManager.clear();
+
+		assertEquals(AppConstants.ORDER_STATUS_CANCELED, entityManager.find(Order.class, orderId).getOrderStatus());
+		assertEquals(1, events.stream(OrderSalesEvent.class)
+				.filter(event -> event.orderId().equals(orderId) && event.canceled())
+				.count());
+		assertThrows(APIException.class, () -> orderService.cancelOrder(orderId, "regretful@example.com"));
+	}
+
+	@Test
+	void customerCannotCancelAnotherCustomersOrder() {
+		Long orderId = placedOrder("owned", null);
+
+		assertThrows(AccessDeniedException.class, () -> orderService.cancelOrder(orderId, "intruder@example.com"));
+
+		entityManager.clear();
+		assertEquals(AppConstants.ORDER_STATUS_PLACED, entityManager.find(Order.class, orderId).getOrderStatus());
+	}
+
+	@Test
+	void shippedOrderCannotBeCanceled() {
+		User seller = seller("dispatcher");
+		Long orderId = placedOrder("patient", seller);
+		orderService.updateOrderStatusForSeller(orderId, "Shipped", seller);
+
+		assertThrows(APIException.class, () -> orderService.cancelOrder(orderId, "patient@example.com"));
+	}
+
+	@Test
+	void sellerMarksAnOrderWithTheirProductsShipped() {
+		User seller = seller("shipper");
+		Long orderId = placedOrder("shipbuyer", seller);
+
+		orderService.updateOrderStatusForSeller(orderId, "Shipped", seller);
+		entityManager.flush();
+		entityManager.clear();
+
+		assertEquals("Shipped", entityManager.find(Order.class, orderId).getOrderStatus());
+	}
+
+	@Test
+	void sellerCannotSetAnyOtherStatus() {
+		User seller = seller("canceler");
+		Long orderId = placedOrder("cancelbuyer", seller);
+
+		assertThrows(APIException.class, () -> orderService.updateOrderStatusForSeller(orderId, "Canceled", seller));
+
+		entityManager.clear();
+		assertEquals(AppConstants.ORDER_STATUS_PLACED, entityManager.find(Order.class, orderId).getOrderStatus());
+	}
+
+	@Test
+	void sellerCannotUpdateAnOrderWithoutTheirProducts() {
+		Long orderId = placedOrder("otherbuyer", seller("owner"));
+		User stranger = seller("stranger");
+
+		assertThrows(AccessDeniedException.class,
+				() -> orderService.updateOrderStatusForSeller(orderId, "Shipped", stranger));
+	}
+
+	@Test
+	void adminCancellationPublishesTheStatsEventAndIsFinal(ApplicationEvents events) {
+		User admin = seller("admin");
+		Role adminRole = new Role(AppRole.ROLE_ADMIN);
+		entityManager.persist(adminRole);
+		admin.getRoles().add(adminRole);
+		Long orderId = placedOrder("adminbuyer", admin);
+
+		orderService.updateOrderStatusForSeller(orderId, "Canceled", admin);
+
+		assertEquals(1, events.stream(OrderSalesEvent.class)
+				.filter(event -> event.orderId().equals(orderId) && event.canceled())
+				.count());
+		assertThrows(APIException.class, () -> orderService.updateOrderStatusForSeller(orderId, "Shipped", admin));
+	}
+
+	private User seller(String name) {
+		User seller = new User(name, name + "@example.com", "password");
+		entityManager.persist(seller);
+		return seller;
+	}
+
+	private Long placedOrder(String buyer, User seller) {
+		Long addressId = fillCart(buyer, 1, seller);
+		entityManager.flush();
+		entityManager.clear();
+		return orderService.placeOrder(buyer + "@example.com", addressId, "card", "stripe",
+				"pg-" + buyer, "succeeded", "ok", null).getOrderId();
+	}
+
+	private int statementsToCheckout(String buyer, Long addressId, int lines) {
+		entityManager.flush();
+		entityManager.clear();
+		StatementCounting.STATEMENTS.set(0);
+
+		OrderDTO order = orderService.placeOrder(buyer + "@example.com", addressId, "card", "stripe",
+				"pg-" + buyer, "succeeded", "ok", null);
+		entityManager.flush();
+
+		int statements = StatementCounting.STATEMENTS.get();
+		assertEquals(lines, order.getOrderItemDTOs().size());
+		assertEquals(lines * 5.0, order.getTotalAmount(), 0.001);
+		return statements;
+	}
+
+	private Long fillCart(String buyer, int lines) {
+		return fillCart(buyer, lines, null);
+	}
+
+	private Long fillCart(String buyer, int lines, User seller) {
+		User user = new User(buyer, buyer + "@example.com", "password");
+		entityManager.persist(user);
+
+		Address address = new Address("10001", "USA", "NY", "New York", "1A", "Main Street");
+		address.setUser(user);
+		entityManager.persist(address);
+
+		Cart cart = new Cart();
+		cart.setUser(user);
+		cart.setTotalPrice(lines * 5.0);
+		user.setCart(cart);
+		entityManager.persist(cart);
+
+		for (int i = 0; i < lines; i++) {
+			Product product = new Product();
+			product.setProductName(buyer + " product " + i);
+			product.setDescription("A product for the checkout");
+			product.setQuantity(10);
+			product.setPrice(5.0);
+			product.setSpecialPrice(5.0);
+			product.setCategory(category);
+			product.setUser(seller);
+			entityManager.persist(product);
+
+			CartItem item = new CartItem();
+			item.setCart(cart);
+			item.setProduct(product);
+			item.setQuantity(1);
+			item.setProductPrice(5.0);
+			cart.getCartItems().add(item);
+			entityManager.persist(item);
+		}
+		return address.getAddressId();
+	}
+
+	/**
+	 * Counts every statement prepared on the data source, including the JdbcTemplate stock
+	 * decrement that Hibernate statistics would miss. A JDBC batch counts once. Sequence reads are
+	 * left out: ids are pooled, so whether a checkout hits one depends on what ran before it.
+	 */
+	@TestConfiguration
+	static class StatementCounting {
+		static final AtomicInteger STATEMENTS = new AtomicInteger();
+
+		@Bean
+		static BeanPostProcessor countingDataSource() {
+			return new BeanPostProcessor() {
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String beanName) {
+					if (!(bean instanceof DataSource dataSource)) {
+						return bean;
+					}
+					return new DelegatingDataSource(dataSource) {
+						@Override
+						public Connection getConnection() throws SQLException {
+							return counting(super.getConnection());
+						}
+					};
+				}
+			};
+		}
+
+		private static Connection counting(Connection connection) {
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+					new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+						boolean statement = method.getName().startsWith("prepare") || method.getName().equals("createStatement");
+						boolean sequenceRead = args != null && args[0] instanceof String sql && sql.contains("next value for");
+						if (statement && !sequenceRead) {
+							STATEMENTS.incrementAndGet();
+						}
+						try {
+							return method.invoke(connection, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					});
+		}
+	}
+}
@@ -0,0 +1,240 @@
+package com.ecommerce.ecom.service;
+
+import com.ecommerce.ecom.model.Cart;
+import com.ecommerce.ecom.model.CartItem;
+import com.ecommerce.ecom.model.Category;
+import com.ecommerce.ecom.model.Product;
+import com.ecommerce.ecom.model.User;
+import com.ecommerce.ecom.payload.ProductDTO;
+import com.ecommerce.ecom.payload.ProductResponse;
+import com.ecommerce.ecom.util.AuthUtil;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = {
+		"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.show-sql=false",
+		"spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import(ProductServiceImpl.class)
+class ProductServiceImplTest {
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@MockBean
+	private ModelMapper modelMapper;
+
+	@MockBean
+	private FileService fileService;
+
+	@MockBean
+	private AuthUtil authUtil;
+
+	private Statistics statistics;
+
+	private Category category;
+
+	private final Map<Integer, Product> products = new HashMap<>();
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+		User seller = new User("seller", "seller@example.com", "password");
+		entityManager.persist(seller);
+
+		category = new Category();
+		category.setCategoryName("Kitchen");
+		entityManager.persist(category);
+
+		Category otherCategory = new Category();
+		otherCategory.setCategoryName("Garden");
+		entityManager.persist(otherCategory);
+
+		// Every product sits in several carts; none of those lines should be read by the catalog
+		for (int c = 0; c < 4; c++) {
+			User shopper = new User("shopper" + c, "shopper" + c + "@example.com", "password");
+			entityManager.persist(shopper);
+			Cart cart = new Cart();
+			cart.setUser(shopper);
+			cart.setTotalPrice(0.0);
+			entityManager.persist(cart);
+			for (int p = 0; p < 6; p++) {
+				Product product = productAt(p, seller, p % 2 == 0 ? category : otherCategory);
+				CartItem item = new CartItem();
+				item.setCart(cart);
+				item.setProduct(product);
+				item.setQuantity(1);
+				item.setProductPrice(product.getSpecialPrice());
+				entityManager.persist(item);
+			}
+		}
+
+		entityManager.flush();
+		entityManager.clear();
+		statistics.clear();
+	}
+
+	@Test
+	void listsProductsWithoutLoadingEntitiesOrCartItems() {
+		ProductResponse response = productService.getAllProducts(0, 4, "productId", "asc");
+
+		assertEquals(4, response.getContent().size());
+		assertEquals(6L, response.getTotalElements());
+		assertTrue(response.getContent().stream().map(ProductDTO::getProductName).allMatch(name -> name.startsWith("Product ")));
+		assertNoEntitiesLoaded();
+		// One page query and one count query
+		assertEquals(2, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	void listsCategoryProductsWithoutLoadingEntitiesOrCartItems() {
+		ProductResponse response = productService.getProductsByCategory(category.getCategoryId(), 0, 10, "productId", "asc");
+
+		assertEquals(3, response.getContent().size());
+		assertNoEntitiesLoaded();
+		// Category existence check and the page query; the count is skipped for a partial first page
+		assertEquals(2, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	void bulkDeleteAdjustsCartTotalsAndDeletesCartsLeftEmpty() {
+		Product first = productAt(0, null, category);
+		Product second = productAt(1, null, category);
+		Cart mixed = cartWith("mixed", first, second);
+		Cart onlyFirst = cartWith("only-first", first);
+		entityManager.flush();
+		entityManager.clear();
+		long cartsBefore = cartCount();
+		asAdmin();
+
+		productService.deleteProducts(List.of(first.getProductId()));
+
+		Cart remaining = entityManager.find(Cart.class, mixed.getCartId());
+		assertEquals(2 * 9.99, remaining.getTotalPrice(), 0.001);
+		assertEquals(1, remaining.getCartItems().size());
+		assertNull(entityManager.find(Cart.class, onlyFirst.getCartId()));
+		assertEquals(cartsBefore - 1, cartCount());
+		assertNull(entityManager.find(Product.class, first.getProductId()));
+	}
+
+	@Test
+	void bulkDeleteOfEveryProductInTheCartsDeletesThemAll() {
+		asAdmin();
+
+		productService.deleteProducts(products.values().stream().map(Product::getProductId).toList());
+
+		assertEquals(0L, cartCount());
+		assertEquals(0L, entityManager.createQuery("SELECT COUNT(ci) FROM CartItem ci", Long.class).getSingleResult());
+	}
+
+	@Test
+	void priceChangeBumpsThePriceVersionWithoutTouchingCarts() {
+		Product product = products.get(0);
+		when(authUtil.loggedInUser()).thenReturn(product.getUser());
+		ProductDTO update = new ProductDTO();
+		update.setProductName(product.getProductName());
+		update.setDescription(product.getDescription());
+		update.setQuantity(product.getQuantity());
+		update.setPrice(19.99);
+		statistics.clear();
+
+		productService.updateProduct(update, product.getProductId());
+		entityManager.flush();
+
+		// Only the product row is written; its cart lines are repriced when their carts next change
+		assertEquals(1, statistics.getEntityUpdateCount());
+		entityManager.clear();
+		Product stored = entityManager.find(Product.class, product.getProductId());
+		assertEquals(product.getPriceVersion() + 1, stored.getPriceVersion());
+		assertEquals(19.99, stored.getSpecialPrice(), 0.001);
+		List<CartItem> lines = entityManager.createQuery(
+						"SELECT ci FROM CartItem ci WHERE ci.product.productId = :productId", CartItem.class)
+				.setParameter("productId", product.getProductId())
+				.getResultList();
+		assertEquals(4, lines.size());
+		lines.forEach(line -> {
+			assertEquals(9.99, line.getProductPrice(), 0.001);
+			assertEquals(product.getPriceVersion(), line.getPriceVersion());
+		});
+	}
+
+	@AfterEach
+	void clearSecurityContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	private Cart cartWith(String name, Product... cartProducts) {
+		User shopper = new User(name, name + "@example.com", "password");
+		entityManager.persist(shopper);
+		Cart cart = new Cart();
+		cart.setUser(shopper);
+		cart.setTotalPrice(cartProducts.length * 2 * 9.99);
+		entityManager.persist(cart);
+		for (Product product : cartProducts) {
+			CartItem item = new CartItem();
+			item.setCart(cart);
+			item.setProduct(entityManager.merge(product));
+			item.setQuantity(2);
+			item.setProductPrice(9.99);
+			entityManager.persist(item);
+		}
+		return cart;
+	}
+
+	private long cartCount() {
+		return entityManager.createQuery("SELECT COUNT(c) FROM Cart c", Long.class).getSingleResult();
+	}
+
+	private static void asAdmin() {
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+				"admin", null, List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))));
+	}
+
+	private void assertNoEntitiesLoaded() {
+		assertEquals(0, statistics.getEntityLoadCount(), "entities loaded");
+		assertEquals(0, statistics.getCollectionFetchCount(), "collections fetched");
+		assertEquals(0, statistics.getCollectionLoadCount(), "collections loaded");
+	}
+
+	private Product productAt(int index, User seller, Category productCategory) {
+		return products.computeIfAbsent(index, i -> {
+			Product product = new Product();
+			product.setProductName("Product " + i);
+			product.setDescription("A catalog product");
+			product.setQuantity(10);
+			product.setPrice(9.99);
+			product.setSpecialPrice(9.99);
+			product.setCategory(productCategory);
+			product.setUser(seller);
+			entityManager.persist(product);
+			return product;
+		});
+	}
+}
@@ -0,0 +1,228 @@
+package com.ecommerce.ecom.service;
+
+import com.ecommerce.ecom.model.Order;
+import com.ecommerce.ecom.model.OrderItem;
+import com.ecommerce.ecom.model.Product;
+import com.ecommerce.ecom.model.SellerStats;
+import com.ecommerce.ecom.model.User;
+import com.ecommerce.ecom.payload.SellerDashboardStatsDTO;
+import com.ecommerce.ecom.repositories.OrderItemRepository;
+import com.ecommerce.ecom.repositories.OrderRepository;
+import com.ecommerce.ecom.repositories.ProductRepository;
+import com.ecommerce.ecom.repositories.SellerStatsRepository;
+import com.ecommerce.ecom.repositories.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+		"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.show-sql=false"
+})
+@Import(SellerStatsServiceImpl.class)
+class SellerStatsServiceImplTest {
+
+	@Autowired
+	private SellerStatsService sellerStatsService;
+
+	@Autowired
+	private SellerStatsRepository sellerStatsRepository;
+
+	@Autowired
+	private SellerStatsServiceImpl sellerStatsListener;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private OrderItemRepository orderItemRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	// Listener tests commit their data, as the listeners read it in transactions of their own
+	@AfterEach
+	void tearDown() {
+		orderItemRepository.deleteAllInBatch();
+		orderRepository.deleteAllInBatch();
+		productRepository.deleteAllInBatch();
+		sellerStatsRepository.deleteAllInBatch();
+		userRepository.deleteAllInBatch();
+	}
+
+	@Test
+	void rebuildMatchesTheAggregateAndIsReadByPrimaryKey() {
+		User seller = persistUser("seller", "seller@example.com");
+		User otherSeller = persistUser("other", "other@example.com");
+		Product lamp = persistProduct("Lamp", seller);
+		Product chair = persistProduct("Chair", seller);
+		Product rug = persistProduct("Rug", otherSeller);
+
+		Order first = persistOrder("a@example.com", "Order Placed.");
+		persistItem(first, lamp, 2, 10.0);
+		persistItem(first, rug, 1, 100.0);
+		Order second = persistOrder("b@example.com", "Shipped");
+		persistItem(second, chair, 1, 25.5);
+		Order canceled = persistOrder("c@example.com", "Canceled");
+		persistItem(canceled, lamp, 4, 10.0);
+		entityManager.flush();
+		entityManager.clear();
+
+		SellerDashboardStatsDTO aggregate = sellerStatsService.getDashboardStats(seller.getUserId());
+
+		assertEquals(2, sellerStatsService.rebuildSellerStats());
+		entityManager.flush();
+		entityManager.clear();
+		assertTrue(sellerStatsRepository.existsById(seller.getUserId()));
+
+		SellerDashboardStatsDTO stats = sellerStatsService.getDashboardStats(seller.getUserId());
+		assertEquals(aggregate, stats);
+		assertEquals(2L, stats.getTotalProducts());
+		assertEquals(2L, stats.getTotalOrders());
+		assertEquals(45.5, stats.getTotalSales(), 0.0001);
+		assertEquals(2L, stats.getTotalCustomers());
+	}
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void listenersLeaveSellersWithoutARowToTheLiveAggregate() {
+		User seller = userRepository.save(new User("seller", "seller@example.com", "password"));
+		Product lamp = productRepository.save(newProduct("Lamp", seller));
+		Order order = commitOrder("a@example.com", lamp, 2, 10.0);
+
+		sellerStatsListener.onSellerProductsChanged(new SellerProductsChangedEvent(Set.of(seller.getUserId())));
+		sellerStatsListener.onOrderSales(new OrderSalesEvent(order.getOrderId(), "a@example.com", false));
+
+		// A row seeded with zeros here would have hidden the seller's earlier sales until a rebuild
+		assertFalse(sellerStatsRepository.existsById(seller.getUserId()));
+		SellerDashboardStatsDTO stats = sellerStatsService.getDashboardStats(seller.getUserId());
+		assertEquals(1L, stats.getTotalOrders());
+		assertEquals(20.0, stats.getTotalSales(), 0.0001);
+	}
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void listenersKeepARebuiltRowCurrent() {
+		User seller = userRepository.save(new User("seller", "seller@example.com", "password"));
+		Product lamp = productRepository.save(newProduct("Lamp", seller));
+		commitOrder("a@example.com", lamp, 2, 10.0);
+		sellerStatsService.rebuildSellerStats();
+
+		Order second = commitOrder("b@example.com", lamp, 1, 10.0);
+		sellerStatsListener.onOrderSales(new OrderSalesEvent(second.getOrderId(), "b@example.com", false));
+
+		SellerStats stats = sellerStatsRepository.findById(seller.getUserId()).orElseThrow();
+		assertEquals(2L, stats.getTotalOrders());
+		assertEquals(30.0, stats.getTotalSales(), 0.0001);
+		assertEquals(2L, stats.getTotalCustomers());
+
+		sellerStatsListener.onOrderSales(new OrderSalesEvent(second.getOrderId(), "b@example.com", true));
+
+		stats = sellerStatsRepository.findById(seller.getUserId()).orElseThrow();
+		assertEquals(1L, stats.getTotalOrders());
+		assertEquals(20.0, stats.getTotalSales(), 0.0001);
+		// The sketch cannot forget b@example.com; only a rebuild drops the customer
+		assertEquals(2L, stats.getTotalCustomers());
+
+		productRepository.save(newProduct("Chair", seller));
+		sellerStatsListener.onSellerProductsChanged(new SellerProductsChangedEvent(Set.of(seller.getUserId())));
+
+		assertEquals(2L, sellerStatsRepository.findById(seller.getUserId()).orElseThrow().getTotalProducts());
+	}
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void rebuildUpdatesRowsInPlaceAndDropsSellersWithNothingLeft() {
+		User seller = userRepository.save(new User("seller", "seller@example.com", "password"));
+		User formerSeller = userRepository.save(new User("former", "former@example.com", "password"));
+		Product lamp = productRepository.save(newProduct("Lamp", seller));
+		Product rug = productRepository.save(newProduct("Rug", formerSeller));
+		commitOrder("a@example.com", lamp, 2, 10.0);
+		sellerStatsService.rebuildSellerStats();
+		long version = sellerStatsRepository.findById(seller.getUserId()).orElseThrow().getVersion();
+
+		productRepository.delete(rug);
+		commitOrder("b@example.com", lamp, 1, 10.0);
+		assertEquals(1, sellerStatsService.rebuildSellerStats());
+
+		SellerStats stats = sellerStatsRepository.findById(seller.getUserId()).orElseThrow();
+		assertEquals(version + 1, stats.getVersion());
+		assertEquals(2L, stats.getTotalOrders());
+		assertEquals(30.0, stats.getTotalSales(), 0.0001);
+		assertFalse(sellerStatsRepository.existsById(formerSeller.getUserId()));
+	}
+
+	private Order commitOrder(String email, Product product, int quantity, double price) {
+		Order order = new Order();
+		order.setEmail(email);
+		order.setOrderDate(LocalDate.now());
+		order.setOrderStatus("Order Placed.");
+		orderRepository.save(order);
+
+		OrderItem item = new OrderItem();
+		item.setOrder(order);
+		item.setProduct(product);
+		item.setQuantity(quantity);
+		item.setOrderedProductPrice(price);
+		orderItemRepository.save(item);
+		return order;
+	}
+
+	private static Product newProduct(String name, User seller) {
+		Product product = new Product();
+		product.setProductName(name);
+		product.setDescription("A product for the dashboard");
+		product.setQuantity(10);
+		product.setUser(seller);
+		return product;
+	}
+
+	private User persistUser(String username, String email) {
+		User user = new User(username, email, "password");
+		entityManager.persist(user);
+		return user;
+	}
+
+	private Product persistProduct(String name, User seller) {
+		Product product = newProduct(name, seller);
+		entityManager.persist(product);
+		return product;
+	}
+
+	private Order persistOrder(String email, String status) {
+		Order order = new Order();
+		order.setEmail(email);
+		order.setOrderDate(LocalDate.now());
+		order.setOrderStatus(status);
+		entityManager.persist(order);
+		return order;
+	}
+
+	private void persistItem(Order order, Product product, int quantity, double price) {
+		OrderItem item = new OrderItem();
+		item.setOrder(order);
+		item.setProduct(product);
+		item.setQuantity(quantity);
+		item.setOrderedProductPrice(price);
+		entityManager.persist(item);
+	}
+}
@@ -0,0 +1,89 @@
+package com.ecommerce.ecom.util;
+
+import com.ecommerce.ecom.model.User;
+import com.ecommerce.ecom.repositories.UserRepository;
+import com.ecommerce.ecom.security.services.UserDetailsImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthUtilTest {
+
+	private final UserRepository userRepository = mock(UserRepository.class);
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final RequestUserContext requestUserContext = new RequestUserContext();
+
+	private final AuthUtil authUtil = new AuthUtil();
+
+	private final User alice = new User("alice", "alice@example.com", "password");
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(requestUserContext, "meterRegistry", meterRegistry);
+		authUtil.userRepository = userRepository;
+		authUtil.requestUserContext = requestUserContext;
+
+		alice.setUserId(7L);
+		when(userRepository.findByUsername("alice")).thenReturn(Optional.of(alice));
+		UserDetailsImpl principal = new UserDetailsImpl(7L, "alice", "alice@example.com", null, List.of());
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+	}
+
+	@AfterEach
+	void tearDown() {
+		RequestContextHolder.resetRequestAttributes();
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void resolvesTheUserOncePerRequest() {
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+		User first = authUtil.loggedInUser();
+		assertEquals("alice@example.com", authUtil.loggedInEmail());
+		assertSame(first, authUtil.loggedInUser());
+
+		verify(userRepository, times(1)).findByUsername(anyString());
+		requestUserContext.recordMetrics();
+		assertEquals(2.0, meterRegistry.summary("auth.user.lookups.avoided").totalAmount());
+	}
+
+	@Test
+	void userIdIsTakenFromThePrincipal() {
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+		assertEquals(7L, authUtil.loggedInUserId());
+
+		verify(userRepository, never()).findByUsername(anyString());
+	}
+
+	@Test
+	void looksTheUserUpOnEveryCallOutsideARequest() {
+		authUtil.loggedInUser();
+		authUtil.loggedInUser();
+
+		verify(userRepository, times(2)).findByUsername("alice");
+	}
+}
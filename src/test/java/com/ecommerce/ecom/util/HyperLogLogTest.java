@@ -0,0 +1,47 @@
+package com.ecommerce.ecom.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+	@Test
+	void countsSmallSetsExactlyEnough() {
+		HyperLogLog sketch = new HyperLogLog();
+		for (int i = 0; i < 3; i++) {
+			sketch.add("a@example.com");
+			sketch.add("b@example.com");
+		}
+
+		assertEquals(0, new HyperLogLog().estimate());
+		assertEquals(2, sketch.estimate());
+	}
+
+	@Test
+	void estimatesLargeSetsWithinTolerance() {
+		HyperLogLog sketch = new HyperLogLog();
+		int distinct = 100_000;
+		for (int i = 0; i < distinct; i++) {
+			sketch.add("customer-" + i + "@example.com");
+		}
+
+		double error = Math.abs(sketch.estimate() - distinct) / (double) distinct;
+		assertTrue(error < 0.05, "relative error " + error);
+	}
+
+	@Test
+	void survivesRoundTripThroughBytes() {
+		HyperLogLog sketch = new HyperLogLog();
+		for (int i = 0; i < 1_000; i++) {
+			sketch.add("customer-" + i);
+		}
+
+		HyperLogLog restored = HyperLogLog.fromBytes(sketch.toBytes());
+		restored.add("customer-1");
+
+		assertEquals(sketch.estimate(), restored.estimate());
+		assertEquals(0, HyperLogLog.fromBytes(null).estimate());
+	}
+}
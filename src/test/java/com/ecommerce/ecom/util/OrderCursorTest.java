@@ -0,0 +1,29 @@
+package com.ecommerce.ecom.util;
+
+import com.ecommerce.ecom.exceptions.APIException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderCursorTest {
+
+	@Test
+	void roundTripsThroughItsToken() {
+		OrderCursor cursor = new OrderCursor(LocalDate.of(2024, 11, 29), 123456789L);
+
+		String token = cursor.encode();
+
+		assertTrue(token.matches("[A-Za-z0-9_-]+"), "token should be URL-safe: " + token);
+		assertEquals(cursor, OrderCursor.decode(token));
+	}
+
+	@Test
+	void rejectsTamperedTokens() {
+		assertThrows(APIException.class, () -> OrderCursor.decode("not a cursor"));
+		assertThrows(APIException.class, () -> OrderCursor.decode("MjAyNC0xMS0yOQ"));
+	}
+}